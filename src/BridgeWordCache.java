@@ -0,0 +1,92 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 桥接词查询缓存
+ * 以(word1, word2)为键缓存桥接词列表，容量有限，按最近最少使用（LRU）淘汰，
+ * 线程安全。图对象被替换或版本号变化时自动清空
+ */
+public class BridgeWordCache {
+    private final GraphVersionedCache<Key, List<String>> cache; // (word1, word2)到桥接词列表的缓存
+    
+    /**
+     * 构造函数
+     * @param maxSize 最大缓存条目数
+     */
+    public BridgeWordCache(int maxSize) {
+        this.cache = new GraphVersionedCache<>(maxSize);
+    }
+    
+    /**
+     * 获取两个单词之间的桥接词，未命中时查询图并放入缓存
+     * @param graph 图结构
+     * @param word1 第一个单词
+     * @param word2 第二个单词
+     * @return 不可修改的桥接词列表
+     */
+    public List<String> getBridgeWords(TextGraph graph, String word1, String word2) {
+        return cache.get(graph, new Key(word1, word2),
+                         key -> Collections.unmodifiableList(graph.getBridgeWords(key.word1, key.word2)));
+    }
+    
+    /**
+     * 清空缓存，计数器保持不变
+     */
+    public void clear() {
+        cache.clear();
+    }
+    
+    /**
+     * 获取当前缓存条目数
+     * @return 条目数
+     */
+    public int size() {
+        return cache.size();
+    }
+    
+    /**
+     * 获取命中次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+    
+    /**
+     * 获取未命中次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+    
+    /**
+     * 缓存键，由两个单词组成
+     */
+    private static final class Key {
+        private final String word1;
+        private final String word2;
+        
+        Key(String word1, String word2) {
+            this.word1 = word1;
+            this.word2 = word2;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return word1.equals(other.word1) && word2.equals(other.word2);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * word1.hashCode() + word2.hashCode();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * 图数据存储工具类
+ * 统一分配堆内数组或堆外直接内存作为int、char序列的存储。
+ * 堆外内存不属于Java堆，垃圾回收器不需要扫描或移动其中的数据，
+ * 在对应的缓冲区不可达后由JVM释放，总量受 -XX:MaxDirectMemorySize 限制
+ */
+final class BufferStorage {
+    private BufferStorage() {
+    }
+    
+    /**
+     * 分配int存储
+     * @param capacity 元素个数
+     * @param offHeap 是否使用堆外内存
+     * @return 位置为0、容量为capacity的int缓冲区
+     */
+    static IntBuffer ints(int capacity, boolean offHeap) {
+        if (!offHeap) {
+            return IntBuffer.wrap(new int[capacity]);
+        }
+        return ByteBuffer.allocateDirect(checkedBytes(capacity, 4)).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+    
+    /**
+     * 分配char存储
+     * @param capacity 元素个数
+     * @param offHeap 是否使用堆外内存
+     * @return 位置为0、容量为capacity的char缓冲区
+     */
+    static CharBuffer chars(int capacity, boolean offHeap) {
+        if (!offHeap) {
+            return CharBuffer.wrap(new char[capacity]);
+        }
+        return ByteBuffer.allocateDirect(checkedBytes(capacity, 2)).order(ByteOrder.nativeOrder()).asCharBuffer();
+    }
+    
+    /**
+     * 复制int存储的前count个元素到新的存储中
+     * @param source 原存储
+     * @param count 复制的元素个数
+     * @param capacity 新存储的容量
+     * @param offHeap 新存储是否使用堆外内存
+     * @return 新存储
+     */
+    static IntBuffer copyOf(IntBuffer source, int count, int capacity, boolean offHeap) {
+        IntBuffer copy = ints(capacity, offHeap);
+        copy.put(0, source, 0, count);
+        return copy;
+    }
+    
+    /**
+     * 复制char存储的前count个元素到新的存储中
+     * @param source 原存储
+     * @param count 复制的元素个数
+     * @param capacity 新存储的容量
+     * @param offHeap 新存储是否使用堆外内存
+     * @return 新存储
+     */
+    static CharBuffer copyOf(CharBuffer source, int count, int capacity, boolean offHeap) {
+        CharBuffer copy = chars(capacity, offHeap);
+        copy.put(0, source, 0, count);
+        return copy;
+    }
+    
+    /**
+     * 计算存储所需的字节数，单个直接缓冲区不能超过2GB
+     * @param capacity 元素个数
+     * @param elementSize 每个元素的字节数
+     * @return 字节数
+     */
+    private static int checkedBytes(int capacity, int elementSize) {
+        long bytes = (long) capacity * elementSize;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap section too large: " + bytes + " bytes");
+        }
+        return (int) bytes;
+    }
+}
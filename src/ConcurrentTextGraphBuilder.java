@@ -0,0 +1,243 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并发文本图构建器
+ * 多个写入线程可以同时追加文本，每个线程通过自己的Feed维护上一个单词。
+ * 每个Feed用自己的词表把切分出的字符区间映射到全局编号，已经见过的单词不会创建字符串，
+ * 只有Feed第一次遇到的单词才查询共享的并发哈希表分配编号。
+ * 边权重按键的哈希分散到若干个分段，每段是一个基本类型的哈希表并由自己的锁保护，
+ * 不同分段可以同时累加，整个过程没有全局锁，权重保持精确。
+ * 单词编号按分配先后决定，不保证与顺序构建相同
+ */
+public class ConcurrentTextGraphBuilder {
+    private static final int STRIPE_COUNT = 64; // 边权重表的分段数，必须为2的幂
+    
+    private final ConcurrentHashMap<String, Integer> wordToIndex; // 单词到索引的映射
+    private final AtomicInteger nextIndex; // 下一个可分配的单词索引
+    private final LongIntHashMap[] edgeStripes; // 按键的哈希分段的边（起点<<32|终点）权重表，每段以自身为锁
+    private final Tokenizer.Rule rule; // 单词切分规则
+    
+    /**
+     * 构造函数，创建空的并发构建器，使用默认的切分规则
+     */
+    public ConcurrentTextGraphBuilder() {
+        this(Tokenizer.ASCII_LOWER_CASE);
+    }
+    
+    /**
+     * 构造函数，创建空的并发构建器
+     * @param rule 单词切分规则
+     */
+    public ConcurrentTextGraphBuilder(Tokenizer.Rule rule) {
+        this.rule = rule;
+        wordToIndex = new ConcurrentHashMap<>();
+        nextIndex = new AtomicInteger();
+        edgeStripes = new LongIntHashMap[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            edgeStripes[i] = new LongIntHashMap();
+        }
+    }
+    
+    /**
+     * 创建一个新的写入通道，每个输入源（线程）应使用独立的通道
+     * @return 写入通道
+     */
+    public Feed newFeed() {
+        return new Feed();
+    }
+    
+    /**
+     * 获取单词的索引，不存在时原子地分配新索引
+     * @param word 单词
+     * @return 单词索引
+     */
+    private int indexOf(String word) {
+        Integer index = wordToIndex.get(word);
+        if (index == null) {
+            index = wordToIndex.computeIfAbsent(word, w -> nextIndex.getAndIncrement());
+        }
+        return index;
+    }
+    
+    /**
+     * 为一条边的权重加一
+     * @param source 起点索引
+     * @param dest 终点索引
+     */
+    private void addEdge(int source, int dest) {
+        long key = ((long) source << 32) | dest;
+        LongIntHashMap stripe = edgeStripes[stripeOf(key)];
+        synchronized (stripe) {
+            stripe.add(key, 1);
+        }
+    }
+    
+    /**
+     * 计算边所在的分段，打乱键的各个位，使同一起点的边分散到不同分段
+     * @param key 边（起点<<32|终点）
+     * @return 分段编号
+     */
+    private static int stripeOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 58) & (STRIPE_COUNT - 1);
+    }
+    
+    /**
+     * 构建图结构
+     * 所有Feed都已经结束写入时得到完整的结果。写入仍在进行时得到一个自洽的部分快照：
+     * 顶点取编号连续已发布的前缀，端点超出该前缀的边被丢弃，边数量为保留的边权重之和
+     * @return 文本图
+     */
+    public TextGraph build() {
+        // 编号在放入哈希表之前分配，正在分配的编号对应的单词可能还不可见，只保留连续可见的前缀
+        String[] words = new String[nextIndex.get()];
+        for (Map.Entry<String, Integer> entry : wordToIndex.entrySet()) {
+            int index = entry.getValue();
+            if (index < words.length) {
+                words[index] = entry.getKey();
+            }
+        }
+        WordDictionary dictionary = new WordDictionary();
+        for (String word : words) {
+            if (word == null) {
+                break;
+            }
+            dictionary.add(word);
+        }
+        
+        int vertexCount = dictionary.size();
+        LongIntHashMap[] stripes = new LongIntHashMap[STRIPE_COUNT];
+        int size = 0;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            synchronized (edgeStripes[i]) {
+                stripes[i] = new LongIntHashMap(edgeStripes[i]);
+            }
+            size += stripes[i].size();
+        }
+        int[] sources = new int[size];
+        int[] dests = new int[size];
+        int[] weights = new int[size];
+        int count = 0;
+        long totalWeight = 0;
+        for (LongIntHashMap stripe : stripes) {
+            for (int slot = stripe.nextSlot(0); slot >= 0; slot = stripe.nextSlot(slot + 1)) {
+                long key = stripe.keyAt(slot);
+                int source = (int) (key >>> 32);
+                int dest = (int) key;
+                if (source < vertexCount && dest < vertexCount) {
+                    sources[count] = source;
+                    dests[count] = dest;
+                    weights[count] = stripe.valueAt(slot);
+                    totalWeight += weights[count];
+                    count++;
+                }
+            }
+        }
+        
+        CsrAdjacency adjacency = CsrAdjacency.fromEdges(vertexCount, sources, dests, weights, count);
+        CsrAdjacency reverseAdjacency = CsrAdjacency.fromEdges(vertexCount, dests, sources, weights, count);
+        return new TextGraph(dictionary, adjacency, reverseAdjacency, (int) totalWeight, -1);
+    }
+    
+    /**
+     * 写入通道
+     * 同一个通道只能由一个线程使用，不同通道之间可以并发写入
+     */
+    public final class Feed {
+        private final Tokenizer tokenizer = new Tokenizer(rule); // 单词切分器
+        private final Tokenizer.TokenHandler handler = (chars, offset, length) ->
+                accept(globalIndexOf(chars, offset, length)); // 把切分出的单词加入图中的回调
+        private final WordDictionary localWords = new WordDictionary(); // 本通道见过的单词
+        private int[] globalIndex = new int[64]; // 本通道单词编号到全局编号的映射
+        private int previousIndex = -1; // 上一个单词的索引，-1表示没有
+        
+        private Feed() {
+        }
+        
+        /**
+         * 追加一段文本，单词可以跨越多次调用
+         * @param text 文本片段
+         * @return 当前通道
+         */
+        public Feed append(CharSequence text) {
+            tokenizer.scan(text, 0, text.length(), handler);
+            return this;
+        }
+        
+        /**
+         * 从字符流中读取全部文本
+         * @param reader 字符流，由调用者负责关闭
+         * @return 当前通道
+         * @throws IOException 读取失败
+         */
+        public Feed read(Reader reader) throws IOException {
+            char[] buffer = new char[8192];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                tokenizer.scan(buffer, 0, count, handler);
+            }
+            return this;
+        }
+        
+        /**
+         * 追加一个已经处理好的单词
+         * @param word 单词
+         * @return 当前通道
+         */
+        public Feed addWord(String word) {
+            flushWord();
+            int size = localWords.size();
+            int local = localWords.add(word);
+            accept(local == size ? register(local, word) : globalIndex[local]);
+            return this;
+        }
+        
+        /**
+         * 结束当前通道的输入，尚未遇到分隔符的单词会被视为已经结束
+         */
+        public void finish() {
+            flushWord();
+        }
+        
+        private void flushWord() {
+            tokenizer.finish(handler);
+        }
+        
+        /**
+         * 获取字符区间对应单词的全局编号，本通道已经见过的单词只在本地词表中查找，不分配内存
+         * @param chars 字符数组
+         * @param offset 起始位置
+         * @param length 长度
+         * @return 全局编号
+         */
+        private int globalIndexOf(char[] chars, int offset, int length) {
+            int size = localWords.size();
+            int local = localWords.add(chars, offset, length);
+            return local == size ? register(local, new String(chars, offset, length)) : globalIndex[local];
+        }
+        
+        /**
+         * 为本通道第一次遇到的单词查询或分配全局编号
+         * @param local 本地编号
+         * @param word 单词
+         * @return 全局编号
+         */
+        private int register(int local, String word) {
+            if (local == globalIndex.length) {
+                globalIndex = Arrays.copyOf(globalIndex, local * 2);
+            }
+            return globalIndex[local] = indexOf(word);
+        }
+        
+        private void accept(int index) {
+            if (previousIndex >= 0) {
+                addEdge(previousIndex, index);
+            }
+            previousIndex = index;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * 压缩稀疏行（CSR）邻接存储
+ * 每个顶点的出边连续存放，并按目标顶点编号升序排列，
+ * 占用内存与边数成正比，而不是与顶点数的平方成正比。
+ * 用同样的结构存放转置图时，每个顶点的区间即为其入边。
+ * 数组可以放在Java堆上，也可以通过toOffHeap()复制到堆外内存，访问接口相同
+ */
+public class CsrAdjacency {
+    private static final int GALLOP_RATIO = 16; // 两行长度相差超过该倍数时改用倍增查找求交集
+    
+    private final int vertexCount; // 顶点数量
+    private final int[] offsets; // 行偏移，长度为 vertexCount + 1，位于堆外时为null
+    private final int[] targets; // 目标顶点编号，位于堆外时为null
+    private final int[] weights; // 边权重，位于堆外时为null
+    private final IntBuffer offsetBuffer; // 行偏移存储
+    private final IntBuffer targetBuffer; // 目标顶点编号存储
+    private final IntBuffer weightBuffer; // 边权重存储
+    
+    /**
+     * 构造函数，直接使用已经压缩好的数组
+     * @param vertexCount 顶点数量
+     * @param offsets 行偏移
+     * @param targets 目标顶点编号
+     * @param weights 边权重
+     */
+    CsrAdjacency(int vertexCount, int[] offsets, int[] targets, int[] weights) {
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.offsetBuffer = IntBuffer.wrap(offsets);
+        this.targetBuffer = IntBuffer.wrap(targets);
+        this.weightBuffer = IntBuffer.wrap(weights);
+    }
+    
+    /**
+     * 构造函数，直接使用已经压缩好的存储，存储可以位于堆外
+     * 堆内存储直接访问底层数组，只有堆外存储才通过缓冲区访问
+     * @param vertexCount 顶点数量
+     * @param offsets 行偏移
+     * @param targets 目标顶点编号
+     * @param weights 边权重
+     */
+    CsrAdjacency(int vertexCount, IntBuffer offsets, IntBuffer targets, IntBuffer weights) {
+        this.vertexCount = vertexCount;
+        this.offsets = arrayOf(offsets);
+        this.targets = arrayOf(targets);
+        this.weights = arrayOf(weights);
+        this.offsetBuffer = offsets;
+        this.targetBuffer = targets;
+        this.weightBuffer = weights;
+    }
+    
+    /**
+     * 获取缓冲区的底层数组
+     * @param buffer 缓冲区
+     * @return 从0开始覆盖整个缓冲区的数组，缓冲区位于堆外时返回null
+     */
+    private static int[] arrayOf(IntBuffer buffer) {
+        return buffer.hasArray() && buffer.arrayOffset() == 0 ? buffer.array() : null;
+    }
+    
+    /**
+     * 由边序列构建CSR结构，重复的边会累加权重
+     * @param vertexCount 顶点数量
+     * @param sources 起点数组
+     * @param dests 终点数组
+     * @param edgeWeights 权重数组，为null时每条边权重为1
+     * @param count 边序列长度
+     * @return CSR邻接结构
+     */
+    public static CsrAdjacency fromEdges(int vertexCount, int[] sources, int[] dests,
+                                         int[] edgeWeights, int count) {
+        // 统计每个起点的边数（含重复）
+        int[] rowStart = new int[vertexCount + 1];
+        for (int i = 0; i < count; i++) {
+            rowStart[sources[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            rowStart[v + 1] += rowStart[v];
+        }
+        
+        // 按起点分桶，目标和权重打包为long以便一起排序
+        long[] packed = new long[count];
+        int[] cursor = Arrays.copyOf(rowStart, vertexCount);
+        for (int i = 0; i < count; i++) {
+            int weight = edgeWeights == null ? 1 : edgeWeights[i];
+            packed[cursor[sources[i]]++] = ((long) dests[i] << 32) | (weight & 0xffffffffL);
+        }
+        
+        // 每行排序并合并重复边
+        int[] offsets = new int[vertexCount + 1];
+        int[] targets = new int[count];
+        int[] weights = new int[count];
+        int size = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v] = size;
+            int from = rowStart[v];
+            int to = rowStart[v + 1];
+            Arrays.sort(packed, from, to);
+            for (int i = from; i < to; i++) {
+                int target = (int) (packed[i] >>> 32);
+                int weight = (int) packed[i];
+                if (size > offsets[v] && targets[size - 1] == target) {
+                    weights[size - 1] += weight;
+                } else {
+                    targets[size] = target;
+                    weights[size] = weight;
+                    size++;
+                }
+            }
+        }
+        offsets[vertexCount] = size;
+        
+        return new CsrAdjacency(vertexCount, offsets,
+                                Arrays.copyOf(targets, size), Arrays.copyOf(weights, size));
+    }
+    
+    /**
+     * 将新增的边合并进来，生成新的CSR结构，当前结构保持不变
+     * 新增边先单独压缩，再与原有各行做线性归并
+     * @param newVertexCount 合并后的顶点数量，不能小于当前顶点数量
+     * @param sources 新增边的起点数组
+     * @param dests 新增边的终点数组
+     * @param edgeWeights 新增边的权重数组，为null时每条边权重为1
+     * @param count 新增边的数量
+     * @return 合并后的CSR邻接结构
+     */
+    public CsrAdjacency merge(int newVertexCount, int[] sources, int[] dests, int[] edgeWeights, int count) {
+        CsrAdjacency delta = fromEdges(newVertexCount, sources, dests, edgeWeights, count);
+        
+        int[] newOffsets = new int[newVertexCount + 1];
+        int[] newTargets = new int[edgeCount() + delta.edgeCount()];
+        int[] newWeights = new int[newTargets.length];
+        int size = 0;
+        for (int v = 0; v < newVertexCount; v++) {
+            newOffsets[v] = size;
+            int i = v < vertexCount ? start(v) : 0;
+            int iEnd = v < vertexCount ? end(v) : 0;
+            int j = delta.start(v);
+            int jEnd = delta.end(v);
+            while (i < iEnd || j < jEnd) {
+                if (j == jEnd || (i < iEnd && target(i) < delta.target(j))) {
+                    newTargets[size] = target(i);
+                    newWeights[size++] = weight(i++);
+                } else if (i == iEnd || delta.target(j) < target(i)) {
+                    newTargets[size] = delta.target(j);
+                    newWeights[size++] = delta.weight(j++);
+                } else {
+                    newTargets[size] = target(i);
+                    newWeights[size++] = weight(i++) + delta.weight(j++);
+                }
+            }
+        }
+        newOffsets[newVertexCount] = size;
+        
+        return new CsrAdjacency(newVertexCount, newOffsets,
+                                Arrays.copyOf(newTargets, size), Arrays.copyOf(newWeights, size));
+    }
+    
+    /**
+     * 获取顶点数量
+     * @return 顶点数量
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+    
+    /**
+     * 获取不同边的数量
+     * @return 边数量
+     */
+    public int edgeCount() {
+        return offsets != null ? offsets[vertexCount] : offsetBuffer.get(vertexCount);
+    }
+    
+    /**
+     * 获取顶点出边区间的起始位置
+     * @param vertex 顶点编号
+     * @return 起始位置（包含）
+     */
+    public int start(int vertex) {
+        return offsets != null ? offsets[vertex] : offsetBuffer.get(vertex);
+    }
+    
+    /**
+     * 获取顶点出边区间的结束位置
+     * @param vertex 顶点编号
+     * @return 结束位置（不包含）
+     */
+    public int end(int vertex) {
+        return offsets != null ? offsets[vertex + 1] : offsetBuffer.get(vertex + 1);
+    }
+    
+    /**
+     * 获取顶点的出度
+     * @param vertex 顶点编号
+     * @return 出度
+     */
+    public int degree(int vertex) {
+        return end(vertex) - start(vertex);
+    }
+    
+    /**
+     * 获取边的目标顶点
+     * @param edge 边位置
+     * @return 目标顶点编号
+     */
+    public int target(int edge) {
+        return targets != null ? targets[edge] : targetBuffer.get(edge);
+    }
+    
+    /**
+     * 获取边的权重
+     * @param edge 边位置
+     * @return 边权重
+     */
+    public int weight(int edge) {
+        return weights != null ? weights[edge] : weightBuffer.get(edge);
+    }
+    
+    /**
+     * 在行内二分查找边的位置
+     * @param source 起点编号
+     * @param target 终点编号
+     * @return 边位置，如果不存在则返回-1
+     */
+    public int find(int source, int target) {
+        int index = binarySearch(start(source), end(source), target);
+        return index >= 0 ? index : -1;
+    }
+    
+    /**
+     * 获取两个顶点之间的边权重
+     * @param source 起点编号
+     * @param target 终点编号
+     * @return 边权重，如果不存在则返回0
+     */
+    public int weight(int source, int target) {
+        int edge = find(source, target);
+        return edge >= 0 ? weight(edge) : 0;
+    }
+    
+    /**
+     * 求两个有序行的交集，结果按顶点编号升序写入输出数组
+     * 两行长度相近时使用线性归并；一行远短于另一行时，
+     * 对短行的每个元素在长行上做倍增查找，代价为O(短行长度·log(长行长度))
+     * @param left 第一个邻接结构
+     * @param leftRow 第一个邻接结构中的行
+     * @param right 第二个邻接结构
+     * @param rightRow 第二个邻接结构中的行
+     * @param out 输出数组，长度不小于两行中较短者的长度
+     * @return 交集大小
+     */
+    public static int intersect(CsrAdjacency left, int leftRow, CsrAdjacency right, int rightRow, int[] out) {
+        CsrAdjacency a = left;
+        int aFrom = left.start(leftRow);
+        int aTo = left.end(leftRow);
+        CsrAdjacency b = right;
+        int bFrom = right.start(rightRow);
+        int bTo = right.end(rightRow);
+        
+        // 保证a为较短的一行
+        if (aTo - aFrom > bTo - bFrom) {
+            CsrAdjacency row = a;
+            a = b;
+            b = row;
+            int from = aFrom;
+            aFrom = bFrom;
+            bFrom = from;
+            int to = aTo;
+            aTo = bTo;
+            bTo = to;
+        }
+        
+        int count = 0;
+        if ((aTo - aFrom) * GALLOP_RATIO < bTo - bFrom) {
+            // 倍增查找：每次从上一次的位置开始按1、2、4…的步长前进，再在区间内二分
+            int low = bFrom;
+            for (int i = aFrom; i < aTo && low < bTo; i++) {
+                int value = a.target(i);
+                int step = 1;
+                int high = low;
+                while (high < bTo && b.target(high) < value) {
+                    low = high + 1;
+                    high += step;
+                    step <<= 1;
+                }
+                int index = b.binarySearch(low, Math.min(high + 1, bTo), value);
+                if (index >= 0) {
+                    out[count++] = value;
+                    low = index + 1;
+                } else {
+                    low = -index - 1;
+                }
+            }
+        } else {
+            // 线性归并
+            int i = aFrom;
+            int j = bFrom;
+            while (i < aTo && j < bTo) {
+                int x = a.target(i);
+                int y = b.target(j);
+                if (x < y) {
+                    i++;
+                } else if (x > y) {
+                    j++;
+                } else {
+                    out[count++] = x;
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 在目标顶点的有序区间内二分查找，约定与Arrays.binarySearch相同
+     * @param from 起始位置（包含）
+     * @param to 结束位置（不包含）
+     * @param key 查找的值
+     * @return 找到时为位置，否则为 -(插入位置) - 1
+     */
+    private int binarySearch(int from, int to, int key) {
+        if (targets != null) {
+            return Arrays.binarySearch(targets, from, to, key);
+        }
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = targetBuffer.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+    
+    /**
+     * 判断数据是否存放在堆外内存中
+     * @return 是否位于堆外
+     */
+    public boolean isOffHeap() {
+        return targets == null;
+    }
+    
+    /**
+     * 将全部数组复制到堆外内存，生成新的CSR结构，访问接口不变
+     * @return 堆外的CSR邻接结构
+     */
+    public CsrAdjacency toOffHeap() {
+        int edges = edgeCount();
+        return new CsrAdjacency(vertexCount,
+                                BufferStorage.copyOf(offsetBuffer, vertexCount + 1, vertexCount + 1, true),
+                                BufferStorage.copyOf(targetBuffer, edges, edges, true),
+                                BufferStorage.copyOf(weightBuffer, edges, edges, true));
+    }
+    
+    /**
+     * 获取行偏移存储
+     * @return 行偏移
+     */
+    IntBuffer offsets() {
+        return offsetBuffer;
+    }
+    
+    /**
+     * 获取目标顶点存储
+     * @return 目标顶点编号
+     */
+    IntBuffer targets() {
+        return targetBuffer;
+    }
+    
+    /**
+     * 获取权重存储
+     * @return 边权重
+     */
+    IntBuffer weights() {
+        return weightBuffer;
+    }
+    
+    /**
+     * 生成稠密邻接矩阵副本，仅适用于小图
+     * @return 邻接矩阵
+     */
+    public int[][] toDenseMatrix() {
+        int[][] matrix = new int[vertexCount][vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = start(v); e < end(v); e++) {
+                matrix[v][target(e)] = weight(e);
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,475 @@
+import java.util.Arrays;
+
+/**
+ * Dijkstra搜索引擎
+ * 用二叉堆取出距离最小的顶点，只沿CSR中实际存在的出边松弛，目标顶点出堆后立即停止。
+ * 距离、前驱和堆数组在多次查询之间复用：每次查询使用新的查询编号，
+ * 记录的编号不等于当前编号的顶点视为尚未到达，因此开始新的查询不需要清空数组。
+ * 提供目标距离下界时按 距离+下界 的顺序出堆，即A*搜索。
+ * 实例不是线程安全的，通过acquire()取得当前线程复用的实例
+ */
+final class DijkstraSearch {
+    /**
+     * 顶点到目标距离的下界，用于A*搜索；下界必须满足三角不等式，出堆的顶点距离才是最终的
+     */
+    interface Potential {
+        /**
+         * 估计顶点到目标的距离
+         * @param vertex 顶点
+         * @return 不超过实际距离的下界，如果确定无法到达目标则返回-1
+         */
+        int estimate(int vertex);
+    }
+    
+    private static final ThreadLocal<DijkstraSearch> POOL = ThreadLocal.withInitial(DijkstraSearch::new);
+    private static final ThreadLocal<DijkstraSearch> BACKWARD_POOL = ThreadLocal.withInitial(DijkstraSearch::new);
+    
+    private int[] distance = new int[0]; // 当前查询中的距离
+    private int[] predecessor = new int[0]; // 当前查询中的前驱，-1表示起点
+    private int[] reached = new int[0]; // 顶点最近一次被到达时的查询编号
+    private int[] settled = new int[0]; // 顶点最近一次出堆时的查询编号
+    private int[] estimates = new int[0]; // 当前查询中顶点到目标距离的下界
+    private int[] estimated = new int[0]; // 顶点最近一次计算下界时的查询编号
+    private long[] heap = new long[16]; // 二叉堆，元素为 优先级<<32|顶点，优先级相同时编号小的顶点先出堆
+    private int heapSize; // 堆中元素个数
+    private int query; // 当前查询编号
+    private Potential potential; // 当前查询使用的距离下界，null表示普通的Dijkstra搜索
+    private int settledCount; // 当前查询中已确定的顶点数
+    private int excludedSource = -1; // 当前查询中被排除的出边所属的顶点，-1表示没有排除出边
+    private int[] excludedTargets = new int[8]; // 被排除的出边的终点
+    private int excludedCount; // 被排除的出边数量
+    private int meetingDistance; // 双向搜索中经过相遇点的最短路径长度
+    private int meetingVertex; // 双向搜索中相遇边在本方向一侧的顶点，-1表示尚未相遇
+    private int meetingNext; // 双向搜索中相遇边在反方向一侧的顶点
+    
+    /**
+     * 获取当前线程复用的搜索实例
+     * @return 搜索实例
+     */
+    static DijkstraSearch acquire() {
+        return POOL.get();
+    }
+    
+    /**
+     * 获取当前线程复用的另一个搜索实例，供双向搜索的反向一侧使用
+     * @return 搜索实例
+     */
+    static DijkstraSearch acquireBackward() {
+        return BACKWARD_POOL.get();
+    }
+    
+    /**
+     * 开始新的查询
+     * @param vertexCount 顶点数量
+     */
+    void reset(int vertexCount) {
+        if (distance.length < vertexCount) {
+            int capacity = Math.max(vertexCount, distance.length * 2);
+            distance = new int[capacity];
+            predecessor = new int[capacity];
+            reached = new int[capacity];
+            settled = new int[capacity];
+            estimates = new int[capacity];
+            estimated = new int[capacity];
+        }
+        if (++query == 0) {
+            // 查询编号回绕后清空记录，避免与很久以前的查询混淆
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            Arrays.fill(estimated, 0);
+            query = 1;
+        }
+        heapSize = 0;
+        potential = null;
+        settledCount = 0;
+        excludedSource = -1;
+        excludedCount = 0;
+        meetingDistance = Integer.MAX_VALUE;
+        meetingVertex = -1;
+    }
+    
+    /**
+     * 添加一个起点
+     * @param vertex 起点
+     */
+    void addSource(int vertex) {
+        int priority = 0;
+        if (potential != null && (priority = estimate(vertex)) < 0) {
+            return;
+        }
+        distance[vertex] = 0;
+        predecessor[vertex] = -1;
+        reached[vertex] = query;
+        push(vertex, priority);
+    }
+    
+    /**
+     * 在当前查询中屏蔽一个顶点，搜索不会经过它；应在reset()之后、添加起点之前调用
+     * @param vertex 顶点
+     */
+    void block(int vertex) {
+        settled[vertex] = query; // 已确定的顶点不会再被松弛，因此直接标记为已确定
+    }
+    
+    /**
+     * 在当前查询中排除顶点的一条出边；同一查询中只能排除同一个顶点的出边
+     * @param source 出边所属的顶点
+     * @param target 出边的终点
+     */
+    void excludeEdge(int source, int target) {
+        if (excludedSource >= 0 && excludedSource != source) {
+            throw new IllegalStateException("Edges can only be excluded from one vertex per query");
+        }
+        excludedSource = source;
+        if (excludedCount == excludedTargets.length) {
+            excludedTargets = Arrays.copyOf(excludedTargets, excludedCount * 2);
+        }
+        excludedTargets[excludedCount++] = target;
+    }
+    
+    /**
+     * 计算从起点到目标顶点的最短距离，目标顶点出堆后立即停止
+     * @param adjacency 邻接结构
+     * @param source 起点
+     * @param target 目标顶点
+     * @return 最短距离，如果不可达则返回-1
+     */
+    int search(CsrAdjacency adjacency, int source, int target) {
+        return search(adjacency, source, target, null);
+    }
+    
+    /**
+     * 使用距离下界计算从起点到目标顶点的最短距离（A*搜索），目标顶点出堆后立即停止
+     * @param adjacency 邻接结构
+     * @param source 起点
+     * @param target 目标顶点
+     * @param potential 顶点到目标距离的下界，为null时等同于普通的Dijkstra搜索
+     * @return 最短距离，如果不可达则返回-1
+     */
+    int search(CsrAdjacency adjacency, int source, int target, Potential potential) {
+        reset(adjacency.vertexCount());
+        this.potential = potential;
+        return run(adjacency, source, target);
+    }
+    
+    /**
+     * 在已经开始的查询中计算从起点到目标顶点的最短距离，目标顶点出堆后立即停止；
+     * 与block()、excludeEdge()配合，可以在去掉部分顶点和边的图上搜索
+     * @param adjacency 邻接结构
+     * @param source 起点
+     * @param target 目标顶点
+     * @return 最短距离，如果不可达则返回-1
+     */
+    int run(CsrAdjacency adjacency, int source, int target) {
+        addSource(source);
+        int vertex;
+        while ((vertex = settleNext(adjacency)) >= 0) {
+            if (vertex == target) {
+                return distance[target];
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 计算从起点到所有可达顶点的最短距离
+     * @param adjacency 邻接结构
+     * @param source 起点
+     * @return 可达顶点的数量（包括起点）
+     */
+    int searchAll(CsrAdjacency adjacency, int source) {
+        reset(adjacency.vertexCount());
+        addSource(source);
+        int count = 0;
+        while (settleNext(adjacency) >= 0) {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * 取出距离最小的未确定顶点，确定它的距离并松弛它的出边
+     * @param adjacency 邻接结构
+     * @return 确定的顶点，如果没有可达的顶点则返回-1
+     */
+    int settleNext(CsrAdjacency adjacency) {
+        return settleNext(adjacency, null);
+    }
+    
+    /**
+     * 取出距离最小的未确定顶点，确定它的距离并松弛它的出边；
+     * 同时检查每条出边的终点是否已被反方向的搜索到达，记录经过该边的最短路径
+     * @param adjacency 邻接结构
+     * @param opposite 反方向的搜索，为null时不检查
+     * @return 确定的顶点，如果没有可达的顶点则返回-1
+     */
+    int settleNext(CsrAdjacency adjacency, DijkstraSearch opposite) {
+        int vertex = pollVertex();
+        if (vertex < 0) {
+            return -1;
+        }
+        settled[vertex] = query;
+        settledCount++;
+        int base = distance[vertex];
+        boolean filtered = vertex == excludedSource;
+        for (int e = adjacency.start(vertex), end = adjacency.end(vertex); e < end; e++) {
+            int next = adjacency.target(e);
+            if (filtered && isExcluded(next)) {
+                continue;
+            }
+            int newDist = base + adjacency.weight(e);
+            if (opposite != null && opposite.isReached(next)
+                    && (long) newDist + opposite.distance[next] < meetingDistance) {
+                meetingDistance = newDist + opposite.distance[next];
+                meetingVertex = vertex;
+                meetingNext = next;
+            }
+            if (settled[next] == query) {
+                continue;
+            }
+            if (reached[next] != query || newDist < distance[next]) {
+                int priority = newDist;
+                if (potential != null) {
+                    int h = estimate(next);
+                    if (h < 0) {
+                        continue; // 无法到达目标的顶点不需要进入堆
+                    }
+                    priority += h;
+                }
+                reached[next] = query;
+                distance[next] = newDist;
+                predecessor[next] = vertex;
+                push(next, priority);
+            }
+        }
+        return vertex;
+    }
+    
+    /**
+     * 双向计算从起点到目标顶点的最短路径：正向搜索沿出边从起点出发，
+     * 反向搜索沿入边从目标顶点出发，每次扩展堆顶距离较小的一侧，
+     * 当两侧堆顶距离之和不小于已知的相遇路径长度时停止
+     * @param adjacency 邻接结构（出边）
+     * @param reverseAdjacency 转置的邻接结构（入边）
+     * @param backward 反向搜索使用的实例
+     * @param source 起点
+     * @param target 目标顶点
+     * @return 顶点序列，从起点到目标顶点；如果不可达则返回null
+     */
+    int[] bidirectionalSearch(CsrAdjacency adjacency, CsrAdjacency reverseAdjacency,
+                              DijkstraSearch backward, int source, int target) {
+        reset(adjacency.vertexCount());
+        backward.reset(reverseAdjacency.vertexCount());
+        addSource(source);
+        backward.addSource(target);
+        if (source == target) {
+            return new int[] {source};
+        }
+        
+        while (true) {
+            int forwardTop = peekPriority();
+            int backwardTop = backward.peekPriority();
+            if (forwardTop == Integer.MAX_VALUE || backwardTop == Integer.MAX_VALUE
+                    || (long) forwardTop + backwardTop >= Math.min(meetingDistance, backward.meetingDistance)) {
+                break;
+            }
+            if (forwardTop <= backwardTop) {
+                settleNext(adjacency, backward);
+            } else {
+                backward.settleNext(reverseAdjacency, this);
+            }
+        }
+        
+        // 相遇边可能由任一侧发现，统一转换为 正向顶点 -> 反向顶点 的形式
+        int forwardEnd;
+        int backwardStart;
+        if (meetingDistance <= backward.meetingDistance) {
+            if (meetingVertex < 0) {
+                return null;
+            }
+            forwardEnd = meetingVertex;
+            backwardStart = meetingNext;
+        } else {
+            forwardEnd = backward.meetingNext;
+            backwardStart = backward.meetingVertex;
+        }
+        
+        int[] head = path(forwardEnd);
+        int length = head.length;
+        for (int v = backwardStart; v != -1; v = backward.predecessor[v]) {
+            length++;
+        }
+        int[] path = Arrays.copyOf(head, length);
+        int i = head.length;
+        for (int v = backwardStart; v != -1; v = backward.predecessor[v]) {
+            path[i++] = v;
+        }
+        return path;
+    }
+    
+    /**
+     * 获取当前查询中已确定的顶点数，可用于比较不同搜索方式的工作量
+     * @return 已确定的顶点数
+     */
+    int settledCount() {
+        return settledCount;
+    }
+    
+    /**
+     * 判断顶点在当前查询中是否已被到达
+     * @param vertex 顶点
+     * @return 是否已到达
+     */
+    boolean isReached(int vertex) {
+        return reached[vertex] == query;
+    }
+    
+    /**
+     * 判断顶点的最短距离在当前查询中是否已经确定
+     * @param vertex 顶点
+     * @return 是否已确定
+     */
+    boolean isSettled(int vertex) {
+        return settled[vertex] == query;
+    }
+    
+    /**
+     * 获取顶点在当前查询中的距离
+     * @param vertex 顶点
+     * @return 距离，如果尚未到达则返回Integer.MAX_VALUE
+     */
+    int distance(int vertex) {
+        return reached[vertex] == query ? distance[vertex] : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * 获取顶点在当前查询中的前驱
+     * @param vertex 顶点
+     * @return 前驱，如果是起点或尚未到达则返回-1
+     */
+    int predecessor(int vertex) {
+        return reached[vertex] == query ? predecessor[vertex] : -1;
+    }
+    
+    /**
+     * 沿前驱重建从起点到目标顶点的路径
+     * @param target 已到达的目标顶点
+     * @return 顶点序列，从起点到目标顶点
+     */
+    int[] path(int target) {
+        int length = 0;
+        for (int v = target; v != -1; v = predecessor[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = target; v != -1; v = predecessor[v]) {
+            path[--length] = v;
+        }
+        return path;
+    }
+    
+    /**
+     * 获取堆中尚未确定的顶点的最小优先级，同时丢弃堆顶的过期元素。
+     * 同一顶点较新的元素优先级更小，总是先于旧元素出堆，因此已确定的顶点对应的元素都是过期的
+     * @return 最小优先级，不使用距离下界时即为最小距离；如果堆为空则返回Integer.MAX_VALUE
+     */
+    private int peekPriority() {
+        while (heapSize > 0) {
+            long top = heap[0];
+            int vertex = (int) top;
+            if (settled[vertex] != query) {
+                return (int) (top >>> 32);
+            }
+            removeTop();
+        }
+        return Integer.MAX_VALUE;
+    }
+    
+    /**
+     * 将顶点放入堆中，同一顶点可能存在多个元素，优先级较大的旧元素在出堆时被丢弃
+     * @param vertex 顶点
+     * @param priority 优先级
+     */
+    private void push(int vertex, int priority) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long key = (long) priority << 32 | vertex;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+    
+    /**
+     * 判断从excludedSource出发到顶点的边是否被排除
+     * @param target 边的终点
+     * @return 是否被排除
+     */
+    private boolean isExcluded(int target) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excludedTargets[i] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 获取顶点到目标距离的下界，同一查询中每个顶点只计算一次
+     * @param vertex 顶点
+     * @return 下界，如果确定无法到达目标则返回-1
+     */
+    private int estimate(int vertex) {
+        if (estimated[vertex] != query) {
+            estimated[vertex] = query;
+            estimates[vertex] = potential.estimate(vertex);
+        }
+        return estimates[vertex];
+    }
+    
+    /**
+     * 取出优先级最小且尚未确定的顶点
+     * @return 顶点，如果堆为空则返回-1
+     */
+    private int pollVertex() {
+        while (heapSize > 0) {
+            long top = removeTop();
+            int vertex = (int) top;
+            if (settled[vertex] != query) {
+                return vertex;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 移除堆顶元素
+     * @return 堆顶元素
+     */
+    private long removeTop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
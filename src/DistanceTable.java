@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 全源最短距离表
+ * 在ForkJoinPool上并行地从每个顶点运行一次Dijkstra搜索，把距离按行写入 顶点数*顶点数 的int表，
+ * 不可达记为-1。之后任意两个单词之间的距离都可以O(1)查出。
+ * 表按行分为若干块，每块不超过2GB，可以放在堆内，也可以放在内存映射的文件中：
+ * 5万个顶点的表约占10GB，映射文件时由操作系统的页缓存管理，不占用Java堆。
+ * 表与计算时的图对象和版本号绑定，图修改后应重新计算
+ */
+public class DistanceTable {
+    public static final int UNREACHABLE = -1; // 不可达标记
+    private static final int SOURCES_PER_TASK = 64; // 每个并行任务处理的起点数
+    
+    private final TextGraph graph; // 计算时使用的图
+    private final long version; // 计算时图的版本号
+    private final int vertexCount; // 顶点数量
+    private final int rowsPerBlock; // 每块存放的行数
+    private final IntBuffer[] blocks; // 按行分块的距离表
+    
+    /**
+     * 构造函数，分配空表
+     * @param graph 图结构
+     * @param blocks 按行分块的存储
+     * @param rowsPerBlock 每块存放的行数
+     */
+    private DistanceTable(TextGraph graph, IntBuffer[] blocks, int rowsPerBlock) {
+        this.graph = graph;
+        this.version = graph.getVersion();
+        this.vertexCount = graph.getVertexCount();
+        this.blocks = blocks;
+        this.rowsPerBlock = rowsPerBlock;
+    }
+    
+    /**
+     * 计算给定顶点数的距离表占用的字节数，可在计算之前用来检查内存或磁盘空间是否足够
+     * @param vertexCount 顶点数量
+     * @return 字节数
+     */
+    public static long sizeInBytes(int vertexCount) {
+        return 4L * vertexCount * vertexCount;
+    }
+    
+    /**
+     * 使用公共ForkJoinPool计算全源最短距离表，表存放在堆内
+     * @param graph 图结构
+     * @return 距离表
+     */
+    public static DistanceTable compute(TextGraph graph) {
+        return compute(graph, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 计算全源最短距离表，表存放在堆内
+     * @param graph 图结构
+     * @param pool 执行搜索任务的线程池
+     * @return 距离表
+     */
+    public static DistanceTable compute(TextGraph graph, ForkJoinPool pool) {
+        int vertexCount = graph.getVertexCount();
+        int rowsPerBlock = rowsPerBlock(vertexCount);
+        IntBuffer[] blocks = new IntBuffer[blockCount(vertexCount, rowsPerBlock)];
+        for (int b = 0; b < blocks.length; b++) {
+            blocks[b] = BufferStorage.ints(rowsInBlock(vertexCount, rowsPerBlock, b) * vertexCount, false);
+        }
+        DistanceTable table = new DistanceTable(graph, blocks, rowsPerBlock);
+        table.fill(pool);
+        return table;
+    }
+    
+    /**
+     * 计算全源最短距离表，表存放在内存映射的文件中
+     * 文件按行依次存放本机字节序的int距离，已存在的文件会被覆盖；
+     * 文件在计算完成后仍保持映射，应在不再使用表之后再删除
+     * @param graph 图结构
+     * @param pool 执行搜索任务的线程池
+     * @param path 存放距离表的文件
+     * @return 距离表
+     * @throws IOException 文件创建或映射失败
+     */
+    public static DistanceTable computeMapped(TextGraph graph, ForkJoinPool pool, Path path) throws IOException {
+        int vertexCount = graph.getVertexCount();
+        int rowsPerBlock = rowsPerBlock(vertexCount);
+        IntBuffer[] blocks = new IntBuffer[blockCount(vertexCount, rowsPerBlock)];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long blockBytes = 4L * rowsPerBlock * vertexCount;
+            for (int b = 0; b < blocks.length; b++) {
+                long bytes = 4L * rowsInBlock(vertexCount, rowsPerBlock, b) * vertexCount;
+                blocks[b] = channel.map(FileChannel.MapMode.READ_WRITE, b * blockBytes, bytes)
+                                   .order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+        }
+        DistanceTable table = new DistanceTable(graph, blocks, rowsPerBlock);
+        table.fill(pool);
+        return table;
+    }
+    
+    /**
+     * 并行地从每个顶点运行Dijkstra搜索并写入对应的行
+     * @param pool 执行搜索任务的线程池
+     */
+    private void fill(ForkJoinPool pool) {
+        CsrAdjacency adjacency = graph.getAdjacency();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int from = 0; from < vertexCount; from += SOURCES_PER_TASK) {
+            int first = from;
+            int last = Math.min(vertexCount, from + SOURCES_PER_TASK);
+            tasks.add(pool.submit(() -> {
+                // 每个工作线程复用自己的搜索实例和行缓冲区，各任务写入互不重叠的行
+                DijkstraSearch search = DijkstraSearch.acquire();
+                int[] row = new int[vertexCount];
+                for (int source = first; source < last; source++) {
+                    search.searchAll(adjacency, source);
+                    for (int v = 0; v < vertexCount; v++) {
+                        row[v] = search.isReached(v) ? search.distance(v) : UNREACHABLE;
+                    }
+                    blocks[source / rowsPerBlock].put((source % rowsPerBlock) * vertexCount, row, 0, vertexCount);
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+    
+    /**
+     * 判断距离表是否由给定的图在当前版本下计算得到
+     * @param graph 图结构
+     * @return 是否仍然有效
+     */
+    public boolean isCurrent(TextGraph graph) {
+        return this.graph == graph && version == graph.getVersion();
+    }
+    
+    /**
+     * 获取顶点数量
+     * @return 顶点数量
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+    
+    /**
+     * 获取两个顶点之间的最短距离
+     * @param from 起点索引
+     * @param to 目标索引
+     * @return 最短距离，如果不可达则返回-1
+     */
+    public int getDistance(int from, int to) {
+        return blocks[from / rowsPerBlock].get((from % rowsPerBlock) * vertexCount + to);
+    }
+    
+    /**
+     * 获取两个单词之间的最短距离
+     * @param word1 起始单词
+     * @param word2 目标单词
+     * @return 最短距离，如果单词不存在或不可达则返回-1
+     */
+    public int getDistance(String word1, String word2) {
+        int from = indexOf(word1);
+        int to = indexOf(word2);
+        return from < 0 || to < 0 ? UNREACHABLE : getDistance(from, to);
+    }
+    
+    /**
+     * 获取两个单词之间的一条最短路径
+     * 从起点出发，每一步选择满足 边权+距离(邻居, 目标) = 距离(当前, 目标) 的出边，
+     * 代价与 路径长度*出度 成正比，不需要重新搜索
+     * @param word1 起始单词
+     * @param word2 目标单词
+     * @return 最短路径，如果单词不存在或不可达则返回空列表
+     */
+    public List<String> getPath(String word1, String word2) {
+        List<String> path = new ArrayList<>();
+        int from = indexOf(word1);
+        int to = indexOf(word2);
+        if (from < 0 || to < 0 || getDistance(from, to) == UNREACHABLE) {
+            return path;
+        }
+        
+        CsrAdjacency adjacency = graph.getAdjacency();
+        int current = from;
+        path.add(graph.getWord(current));
+        while (current != to) {
+            int remaining = getDistance(current, to);
+            int next = -1;
+            for (int e = adjacency.start(current); e < adjacency.end(current) && next < 0; e++) {
+                int v = adjacency.target(e);
+                int rest = getDistance(v, to);
+                if (rest != UNREACHABLE && adjacency.weight(e) + rest == remaining) {
+                    next = v;
+                }
+            }
+            current = next;
+            path.add(graph.getWord(current));
+        }
+        return path;
+    }
+    
+    /**
+     * 获取单词在表中的索引
+     * @param word 单词
+     * @return 索引，如果不存在则返回-1
+     */
+    private int indexOf(String word) {
+        if (!graph.containsWord(word)) {
+            return -1;
+        }
+        int index = graph.getIndex(word);
+        return index < vertexCount ? index : -1;
+    }
+    
+    /**
+     * 计算每块存放的行数，使每块不超过2GB
+     * @param vertexCount 顶点数量
+     * @return 每块的行数
+     */
+    private static int rowsPerBlock(int vertexCount) {
+        return Math.max(1, Integer.MAX_VALUE / 4 / Math.max(1, vertexCount));
+    }
+    
+    /**
+     * 计算块数
+     * @param vertexCount 顶点数量
+     * @param rowsPerBlock 每块的行数
+     * @return 块数
+     */
+    private static int blockCount(int vertexCount, int rowsPerBlock) {
+        return (vertexCount + rowsPerBlock - 1) / rowsPerBlock;
+    }
+    
+    /**
+     * 计算某一块实际存放的行数，最后一块可能不满
+     * @param vertexCount 顶点数量
+     * @param rowsPerBlock 每块的行数
+     * @param block 块编号
+     * @return 行数
+     */
+    private static int rowsInBlock(int vertexCount, int rowsPerBlock, int block) {
+        return Math.min(rowsPerBlock, vertexCount - block * rowsPerBlock);
+    }
+}
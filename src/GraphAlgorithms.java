@@ -1,101 +1,166 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 图算法类
  * 实现各种图算法操作
  */
 public class GraphAlgorithms {
+    private static final ShortestPathTreeCache shortestPathTreeCache = new ShortestPathTreeCache(16); // 最短路径树缓存
+    private static volatile PageRankVector pageRankCache; // 最近一次计算的PageRank向量
     
     /**
-     * 计算两个单词之间的最短路径（Dijkstra算法）
+     * 最短路径的搜索方式
+     */
+    public enum SearchMode {
+        UNIDIRECTIONAL, // 从起点单向搜索，目标节点确定后停止
+        BIDIRECTIONAL // 从起点沿出边、从目标沿入边同时搜索，两侧相遇后停止
+    }
+    
+    /**
+     * 计算两个单词之间的最短路径（双向Dijkstra算法）
      * @param graph 图结构
      * @param startWord 起始单词
      * @param endWord 目标单词
      * @return 最短路径，如果不存在则返回空列表
      */
     public static List<String> shortestPath(TextGraph graph, String startWord, String endWord) {
+        return shortestPath(graph, startWord, endWord, SearchMode.BIDIRECTIONAL);
+    }
+    
+    /**
+     * 计算两个单词之间的最短路径（基于二叉堆的Dijkstra算法）
+     * 在连通性较好的大图中，双向搜索确定的节点数通常远少于单向搜索
+     * @param graph 图结构
+     * @param startWord 起始单词
+     * @param endWord 目标单词
+     * @param mode 搜索方式
+     * @return 最短路径，如果不存在则返回空列表
+     */
+    public static List<String> shortestPath(TextGraph graph, String startWord, String endWord, SearchMode mode) {
         // 检查单词是否存在于图中
         if (!graph.containsWord(startWord) || !graph.containsWord(endWord)) {
             return new ArrayList<>();
         }
         
-        // 获取图的信息
-        List<String> allWords = graph.getAllWords();
-        int[][] matrix = graph.getAdjacencyMatrix();
-        int vertexCount = allWords.size();
-        
         // 获取起始和目标单词的索引
-        int startIndex = allWords.indexOf(startWord);
-        int endIndex = allWords.indexOf(endWord);
-        
-        // 初始化距离数组和前驱节点数组
-        int[] distance = new int[vertexCount];
-        int[] predecessor = new int[vertexCount];
-        boolean[] visited = new boolean[vertexCount];
+        int startIndex = graph.getIndex(startWord);
+        int endIndex = graph.getIndex(endWord);
         
-        // 初始化距离为无穷大，前驱为-1
-        for (int i = 0; i < vertexCount; i++) {
-            distance[i] = Integer.MAX_VALUE;
-            predecessor[i] = -1;
-            visited[i] = false;
+        // 使用当前线程复用的搜索实例
+        DijkstraSearch search = DijkstraSearch.acquire();
+        if (mode == SearchMode.BIDIRECTIONAL) {
+            int[] path = search.bidirectionalSearch(graph.getAdjacency(), graph.getReverseAdjacency(),
+                                                    DijkstraSearch.acquireBackward(), startIndex, endIndex);
+            return path == null ? new ArrayList<>() : toWords(graph, path);
         }
         
-        // 起始节点距离为0
-        distance[startIndex] = 0;
-        
-        // Dijkstra算法主循环
-        for (int count = 0; count < vertexCount - 1; count++) {
-            // 找到未访问的最小距离节点
-            int minIndex = -1;
-            int minDist = Integer.MAX_VALUE;
-            for (int i = 0; i < vertexCount; i++) {
-                if (!visited[i] && distance[i] < minDist) {
-                    minDist = distance[i];
-                    minIndex = i;
-                }
-            }
-            
-            // 如果没有可达节点，退出循环
-            if (minIndex == -1) break;
-            
-            // 标记为已访问
-            visited[minIndex] = true;
-            
-            // 更新相邻节点的距离
-            for (int i = 0; i < vertexCount; i++) {
-                // 如果有边且未访问
-                if (matrix[minIndex][i] > 0 && !visited[i]) {
-                    int newDist = distance[minIndex] + matrix[minIndex][i];
-                    // 如果找到更短的路径
-                    if (newDist < distance[i]) {
-                        distance[i] = newDist;
-                        predecessor[i] = minIndex;
-                    }
-                }
-            }
-        }
-        
-        // 如果目标节点不可达
-        if (distance[endIndex] == Integer.MAX_VALUE) {
+        // 单向搜索，目标节点确定后立即停止
+        if (search.search(graph.getAdjacency(), startIndex, endIndex) < 0) {
             return new ArrayList<>();
         }
         
-        // 重建路径
-        List<String> path = new ArrayList<>();
-        int current = endIndex;
-        while (current != -1) {
-            path.add(allWords.get(current));
-            current = predecessor[current];
+        return toWords(graph, search.path(endIndex));
+    }
+    
+    /**
+     * 计算两个单词之间的所有最短路径
+     * 只构建一次最短路径DAG，路径条数和路径本身都可以从中按需获取
+     * @param graph 图结构
+     * @param startWord 起始单词
+     * @param endWord 目标单词
+     * @return 最短路径DAG，如果单词不存在或不可达则不包含任何路径
+     */
+    public static ShortestPathDag allShortestPaths(TextGraph graph, String startWord, String endWord) {
+        if (!graph.containsWord(startWord) || !graph.containsWord(endWord)) {
+            return ShortestPathDag.unreachable();
         }
-        
-        // 反转路径（从起点到终点）
-        Collections.reverse(path);
-        
-        return path;
+        return ShortestPathDag.build(graph, graph.getIndex(startWord), graph.getIndex(endWord));
+    }
+    
+    /**
+     * 使用公共ForkJoinPool计算两个单词之间的前k条最短无环路径（Yen算法）
+     * @param graph 图结构
+     * @param startWord 起始单词
+     * @param endWord 目标单词
+     * @param k 路径条数
+     * @return 路径列表，按路径长度从小到大排列；如果单词不存在或不可达则返回空列表
+     */
+    public static List<List<String>> kShortestPaths(TextGraph graph, String startWord, String endWord, int k) {
+        return kShortestPaths(graph, startWord, endWord, k, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 计算两个单词之间的前k条最短无环路径（Yen算法）
+     * 每一轮中各偏离点的搜索在线程池中并行执行，搜索时跳过被屏蔽的顶点和边，不修改图
+     * @param graph 图结构
+     * @param startWord 起始单词
+     * @param endWord 目标单词
+     * @param k 路径条数
+     * @param pool 执行偏离点搜索的线程池
+     * @return 路径列表，按路径长度从小到大排列；如果单词不存在或不可达则返回空列表
+     */
+    public static List<List<String>> kShortestPaths(TextGraph graph, String startWord, String endWord, int k,
+                                                    ForkJoinPool pool) {
+        List<List<String>> paths = new ArrayList<>();
+        if (!graph.containsWord(startWord) || !graph.containsWord(endWord)) {
+            return paths;
+        }
+        for (int[] vertices : KShortestPaths.find(graph, graph.getIndex(startWord), graph.getIndex(endWord), k, pool)) {
+            paths.add(toWords(graph, vertices));
+        }
+        return paths;
+    }
+    
+    /**
+     * 为点对点最短路径查询构建地标索引（ALT预处理）
+     * 预处理需要运行 2*地标数 次完整的Dijkstra搜索，之后每次查询以地标给出的距离下界进行A*搜索
+     * @param graph 图结构
+     * @param landmarkCount 地标数量
+     * @return 地标索引
+     */
+    public static LandmarkIndex buildLandmarks(TextGraph graph, int landmarkCount) {
+        return LandmarkIndex.build(graph, landmarkCount);
+    }
+    
+    /**
+     * 获取以单词为起点的最短路径树，同一起点在图未修改时复用缓存的结果，
+     * 之后到任意目标的查询只需沿前驱回溯
+     * @param graph 图结构
+     * @param source 起点单词
+     * @return 最短路径树，如果单词不存在则返回null
+     */
+    public static ShortestPathTree shortestPathTree(TextGraph graph, String source) {
+        return shortestPathTreeCache.getTree(graph, source);
+    }
+    
+    /**
+     * 获取已经缓存的以单词为起点的最短路径树，不会为此运行搜索
+     * @param graph 图结构
+     * @param source 起点单词
+     * @return 最短路径树，如果尚未缓存则返回null
+     */
+    public static ShortestPathTree cachedShortestPathTree(TextGraph graph, String source) {
+        return shortestPathTreeCache.getCachedTree(graph, source);
+    }
+    
+    /**
+     * 将顶点序列转换为单词列表
+     * @param graph 图结构
+     * @param vertices 顶点序列
+     * @return 单词列表
+     */
+    private static List<String> toWords(TextGraph graph, int[] vertices) {
+        List<String> words = new ArrayList<>(vertices.length);
+        for (int vertex : vertices) {
+            words.add(graph.getWord(vertex));
+        }
+        return words;
     }
     
     /**
      * 计算单词的PageRank值
+     * 所有单词的PageRank值一次算出并按图的版本缓存，同一图上的后续查询为O(1)
      * @param graph 图结构
      * @param word 单词
      * @param dampingFactor 阻尼系数（默认0.85）
@@ -108,66 +173,59 @@ public class GraphAlgorithms {
             return 0.0;
         }
         
-        // 获取图的信息
-        List<String> allWords = graph.getAllWords();
-        int[][] matrix = graph.getAdjacencyMatrix();
-        int vertexCount = allWords.size();
-        
-        // 获取单词的索引
-        int wordIndex = allWords.indexOf(word);
-        
-        // 初始化PageRank值
-        double[] pr = new double[vertexCount];
-        Arrays.fill(pr, 1.0 / vertexCount);
-        
-        // 迭代计算PageRank
-        for (int iter = 0; iter < iterations; iter++) {
-            double[] newPr = new double[vertexCount];
-            
-            // 处理出度为0的节点，将其PR值均分给所有节点
-            double sinkPR = 0;
-            for (int i = 0; i < vertexCount; i++) {
-                boolean isSink = true;
-                for (int j = 0; j < vertexCount; j++) {
-                    if (matrix[i][j] > 0) {
-                        isSink = false;
-                        break;
-                    }
-                }
-                if (isSink) {
-                    sinkPR += pr[i] / vertexCount;
-                }
-            }
-            
-            // 计算新的PageRank值
-            for (int i = 0; i < vertexCount; i++) {
-                // 随机跳转部分
-                newPr[i] = (1.0 - dampingFactor) / vertexCount;
-                
-                // 加上出度为0的节点贡献
-                newPr[i] += dampingFactor * sinkPR;
-                
-                // 加上其他节点的贡献
-                for (int j = 0; j < vertexCount; j++) {
-                    if (matrix[j][i] > 0) {
-                        // 计算j节点的出度
-                        int outDegree = 0;
-                        for (int k = 0; k < vertexCount; k++) {
-                            outDegree += matrix[j][k];
-                        }
-                        
-                        // 根据边权重计算贡献
-                        newPr[i] += dampingFactor * pr[j] * matrix[j][i] / outDegree;
-                    }
-                }
-            }
-            
-            // 更新PageRank值
-            pr = newPr;
+        return pageRankVector(graph, dampingFactor, iterations).getRank(word);
+    }
+    
+    /**
+     * 获取图中所有单词的PageRank向量，图和参数都未变化时复用上次的结果
+     * @param graph 图结构
+     * @param dampingFactor 阻尼系数（默认0.85）
+     * @param iterations 迭代次数
+     * @return PageRank向量
+     */
+    public static PageRankVector pageRankVector(TextGraph graph, double dampingFactor, int iterations) {
+        PageRankVector cached = pageRankCache;
+        if (cached != null && cached.matches(graph, dampingFactor, 0.0, iterations, false)) {
+            return cached;
         }
-        
-        // 返回指定单词的PageRank值
-        return pr[wordIndex];
+        PageRankVector vector = PageRankVector.compute(graph, dampingFactor, iterations);
+        pageRankCache = vector;
+        return vector;
+    }
+    
+    /**
+     * 迭代到收敛为止计算所有单词的PageRank向量，图和参数都未变化时复用上次的结果
+     * 相邻两轮的L1残差小于容差时停止，达到最大迭代次数时即使未收敛也停止，
+     * 实际迭代次数、最终残差和是否收敛可以从结果中取得
+     * @param graph 图结构
+     * @param dampingFactor 阻尼系数（默认0.85）
+     * @param tolerance L1残差容差
+     * @param maxIterations 最大迭代次数
+     * @param gaussSeidel 是否使用Gauss-Seidel式的原地更新，通常只需更少的迭代次数
+     * @return PageRank向量
+     */
+    public static PageRankVector pageRankVector(TextGraph graph, double dampingFactor, double tolerance,
+                                                int maxIterations, boolean gaussSeidel) {
+        PageRankVector cached = pageRankCache;
+        if (cached != null && cached.matches(graph, dampingFactor, tolerance, maxIterations, gaussSeidel)) {
+            return cached;
+        }
+        PageRankVector vector = PageRankVector.compute(graph, dampingFactor, tolerance, maxIterations, gaussSeidel);
+        pageRankCache = vector;
+        return vector;
+    }
+    
+    /**
+     * 获取PageRank值最高的前n个单词
+     * @param graph 图结构
+     * @param n 单词个数
+     * @param dampingFactor 阻尼系数（默认0.85）
+     * @param iterations 迭代次数
+     * @return 单词及其PageRank值，按PageRank值从大到小排列
+     */
+    public static List<Map.Entry<String, Double>> topPageRank(TextGraph graph, int n, double dampingFactor,
+                                                              int iterations) {
+        return pageRankVector(graph, dampingFactor, iterations).top(n);
     }
     
     /**
@@ -184,7 +242,7 @@ public class GraphAlgorithms {
         }
         
         List<String> allWords = graph.getAllWords();
-        int[][] matrix = graph.getAdjacencyMatrix();
+        CsrAdjacency adjacency = graph.getAdjacency();
         int vertexCount = allWords.size();
         
         // 确定起始节点
@@ -208,24 +266,17 @@ public class GraphAlgorithms {
         int steps = 0;
         while ((maxSteps < 0 || steps < maxSteps)) {
             // 获取当前节点的索引
-            int currentIndex = allWords.indexOf(currentWord);
-            
-            // 查找当前节点的所有出边
-            List<Integer> neighbors = new ArrayList<>();
-            for (int i = 0; i < vertexCount; i++) {
-                if (matrix[currentIndex][i] > 0) {
-                    neighbors.add(i);
-                }
-            }
+            int currentIndex = graph.getIndex(currentWord);
             
             // 如果没有出边，结束游走
-            if (neighbors.isEmpty()) {
+            int degree = adjacency.degree(currentIndex);
+            if (degree == 0) {
                 break;
             }
             
             // 随机选择一个邻居
             Random random = new Random();
-            int nextIndex = neighbors.get(random.nextInt(neighbors.size()));
+            int nextIndex = adjacency.target(adjacency.start(currentIndex) + random.nextInt(degree));
             String nextWord = allWords.get(nextIndex);
             
             // 构造边的标识
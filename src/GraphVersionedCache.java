@@ -0,0 +1,127 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 与图版本绑定的LRU缓存
+ * 容量有限，按最近最少使用淘汰，线程安全。图对象被替换或版本号变化时自动清空，
+ * 未命中时在锁外计算，避免阻塞其他线程的命中；计算期间图发生变化时结果不会放入缓存
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class GraphVersionedCache<K, V> {
+    private final int maxSize; // 最大缓存条目数
+    private final LinkedHashMap<K, V> entries; // 按访问顺序排列的缓存条目
+    private final AtomicLong hitCount = new AtomicLong(); // 命中次数
+    private final AtomicLong missCount = new AtomicLong(); // 未命中次数
+    private TextGraph graph; // 缓存内容所属的图
+    private long version; // 缓存内容所属的图版本号
+    
+    /**
+     * 构造函数
+     * @param maxSize 最大缓存条目数
+     */
+    public GraphVersionedCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > GraphVersionedCache.this.maxSize;
+            }
+        };
+    }
+    
+    /**
+     * 获取键对应的值，未命中时调用loader计算并放入缓存
+     * @param graph 图结构
+     * @param key 键
+     * @param loader 在给定的图上计算值的函数，返回null时不缓存
+     * @return 值
+     */
+    public V get(TextGraph graph, K key, Function<? super K, ? extends V> loader) {
+        long graphVersion = graph.getVersion();
+        synchronized (this) {
+            validate(graph, graphVersion);
+            V cached = entries.get(key);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+        }
+        
+        missCount.incrementAndGet();
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (this) {
+                if (this.graph == graph && version == graphVersion) {
+                    entries.put(key, value);
+                }
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * 只查找缓存，不计算
+     * @param graph 图结构
+     * @param key 键
+     * @return 缓存的值，未命中时返回null
+     */
+    public synchronized V getIfPresent(TextGraph graph, K key) {
+        validate(graph, graph.getVersion());
+        V cached = entries.get(key);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+        }
+        return cached;
+    }
+    
+    /**
+     * 如果图或版本号发生变化，清空缓存
+     * @param graph 图结构
+     * @param graphVersion 图版本号
+     */
+    private void validate(TextGraph graph, long graphVersion) {
+        if (this.graph != graph || version != graphVersion) {
+            entries.clear();
+            this.graph = graph;
+            this.version = graphVersion;
+        }
+    }
+    
+    /**
+     * 清空缓存，计数器保持不变
+     */
+    public synchronized void clear() {
+        entries.clear();
+        graph = null;
+    }
+    
+    /**
+     * 获取当前缓存条目数
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * 获取命中次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+    
+    /**
+     * 获取未命中次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
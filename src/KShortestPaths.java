@@ -0,0 +1,131 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * K条最短无环路径（Yen算法）
+ * 第一条路径为最短路径；之后每一轮以上一条路径上的每个顶点为偏离点，
+ * 屏蔽偏离点之前的路径顶点、排除已找到的路径中从同一前缀伸出的边，
+ * 从偏离点重新搜索到目标，前缀与偏离路径拼接后作为候选，取最短的候选作为下一条路径。
+ * 同一轮中各偏离点的搜索互不依赖，在线程池中并行执行，每个线程使用自己复用的搜索实例，
+ * 只在搜索时跳过被屏蔽的顶点和边，不需要复制或修改图
+ */
+final class KShortestPaths {
+    private KShortestPaths() {
+    }
+    
+    /**
+     * 计算从起点到目标的前k条最短无环路径
+     * @param graph 图结构
+     * @param source 起点索引
+     * @param target 目标索引
+     * @param k 路径条数
+     * @param pool 执行偏离点搜索的线程池
+     * @return 顶点序列列表，按路径长度从小到大排列，长度相同时按顶点编号的字典序排列
+     */
+    static List<int[]> find(TextGraph graph, int source, int target, int k, ForkJoinPool pool) {
+        CsrAdjacency adjacency = graph.getAdjacency();
+        List<int[]> found = new ArrayList<>();
+        DijkstraSearch search = DijkstraSearch.acquire();
+        if (k <= 0 || search.search(adjacency, source, target) < 0) {
+            return found;
+        }
+        found.add(search.path(target));
+        
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        Set<Candidate> seen = new HashSet<>();
+        seen.add(new Candidate(found.get(0), 0));
+        while (found.size() < k) {
+            int[] previous = found.get(found.size() - 1);
+            List<int[]> settledPaths = new ArrayList<>(found);
+            
+            // 上一条路径上除目标外的每个顶点都是一个偏离点
+            List<ForkJoinTask<Candidate>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < previous.length; i++) {
+                int spurIndex = i;
+                tasks.add(pool.submit(() -> spur(adjacency, settledPaths, previous, spurIndex, target)));
+            }
+            for (ForkJoinTask<Candidate> task : tasks) {
+                Candidate candidate = task.join();
+                if (candidate != null && seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            
+            Candidate next = candidates.poll();
+            if (next == null) {
+                break;
+            }
+            found.add(next.vertices);
+        }
+        return found;
+    }
+    
+    /**
+     * 从上一条路径的一个偏离点重新搜索
+     * @param adjacency 邻接结构
+     * @param found 已找到的路径
+     * @param previous 上一条路径
+     * @param spurIndex 偏离点在上一条路径中的位置
+     * @param target 目标索引
+     * @return 候选路径，如果偏离点无法到达目标则返回null
+     */
+    private static Candidate spur(CsrAdjacency adjacency, List<int[]> found, int[] previous, int spurIndex, int target) {
+        int spurVertex = previous[spurIndex];
+        DijkstraSearch search = DijkstraSearch.acquire();
+        search.reset(adjacency.vertexCount());
+        
+        // 屏蔽前缀上的顶点，保证拼接后的路径无环
+        for (int i = 0; i < spurIndex; i++) {
+            search.block(previous[i]);
+        }
+        // 排除已找到的路径中与当前前缀相同、从偏离点伸出的边，保证不会重复找到它们
+        for (int[] path : found) {
+            if (path.length > spurIndex + 1 && Arrays.equals(path, 0, spurIndex + 1, previous, 0, spurIndex + 1)) {
+                search.excludeEdge(spurVertex, path[spurIndex + 1]);
+            }
+        }
+        int spurLength = search.run(adjacency, spurVertex, target);
+        if (spurLength < 0) {
+            return null;
+        }
+        
+        int rootLength = 0;
+        for (int i = 0; i < spurIndex; i++) {
+            rootLength += adjacency.weight(previous[i], previous[i + 1]);
+        }
+        int[] spurPath = search.path(target);
+        int[] vertices = Arrays.copyOf(previous, spurIndex + spurPath.length);
+        System.arraycopy(spurPath, 0, vertices, spurIndex, spurPath.length);
+        return new Candidate(vertices, (long) rootLength + spurLength);
+    }
+    
+    /**
+     * 候选路径，按长度排序，长度相同时按顶点编号的字典序排序
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int[] vertices; // 顶点序列
+        private final long length; // 路径长度
+        
+        Candidate(int[] vertices, long length) {
+            this.vertices = vertices;
+            this.length = length;
+        }
+        
+        @Override
+        public int compareTo(Candidate other) {
+            int c = Long.compare(length, other.length);
+            return c != 0 ? c : Arrays.compare(vertices, other.vertices);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Candidate && Arrays.equals(vertices, ((Candidate) o).vertices);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(vertices);
+        }
+    }
+}
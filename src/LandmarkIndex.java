@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 地标索引（ALT：A*、地标与三角不等式）
+ * 预处理时选出K个地标顶点，记录每个顶点到各地标以及各地标到每个顶点的最短距离。
+ * 对任意顶点v、目标t和地标L，由三角不等式可得
+ * d(v,t) >= d(v,L) - d(t,L) 且 d(v,t) >= d(L,t) - d(L,v)，
+ * 取所有地标中的最大值作为A*搜索的距离下界，点对点查询通常只需确定图中很小一部分顶点。
+ * 索引与构建时的图对象和版本号绑定，图修改后应重新构建
+ */
+public class LandmarkIndex {
+    private static final int UNREACHABLE = -1; // 不可达标记
+    
+    private final TextGraph graph; // 构建时使用的图
+    private final long version; // 构建时图的版本号
+    private final int vertexCount; // 顶点数量
+    private final int[] landmarks; // 地标顶点
+    private final int[] fromLandmark; // 地标到顶点的距离，下标为 顶点*地标数+地标序号
+    private final int[] toLandmark; // 顶点到地标的距离，下标同上
+    
+    /**
+     * 构造函数
+     * @param graph 构建时使用的图
+     * @param vertexCount 顶点数量
+     * @param landmarks 地标顶点
+     * @param fromLandmark 地标到顶点的距离
+     * @param toLandmark 顶点到地标的距离
+     */
+    private LandmarkIndex(TextGraph graph, int vertexCount, int[] landmarks, int[] fromLandmark, int[] toLandmark) {
+        this.graph = graph;
+        this.version = graph.getVersion();
+        this.vertexCount = vertexCount;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+    
+    /**
+     * 构建地标索引
+     * 第一个地标取出入度之和最大的顶点，之后每次选择离已有地标最远的顶点（最远点选择），
+     * 与所有已有地标都不连通的顶点视为无穷远，因此各个连通部分都会分到地标。
+     * 每个地标需要沿出边和入边各运行一次完整的Dijkstra搜索
+     * @param graph 图结构
+     * @param landmarkCount 地标数量，超过有边的顶点数时取有边的顶点数
+     * @return 地标索引
+     */
+    static LandmarkIndex build(TextGraph graph, int landmarkCount) {
+        if (landmarkCount <= 0) {
+            throw new IllegalArgumentException("landmarkCount must be positive: " + landmarkCount);
+        }
+        CsrAdjacency adjacency = graph.getAdjacency();
+        CsrAdjacency reverse = graph.getReverseAdjacency();
+        int vertexCount = adjacency.vertexCount();
+        
+        // 只有有边的顶点才能为其他顶点提供下界
+        int candidates = 0;
+        int first = -1;
+        for (int v = 0; v < vertexCount; v++) {
+            int degree = adjacency.degree(v) + reverse.degree(v);
+            if (degree > 0) {
+                candidates++;
+                if (first < 0 || degree > adjacency.degree(first) + reverse.degree(first)) {
+                    first = v;
+                }
+            }
+        }
+        int k = Math.min(landmarkCount, candidates);
+        
+        int[] landmarks = new int[k];
+        int[] fromLandmark = new int[vertexCount * k];
+        int[] toLandmark = new int[vertexCount * k];
+        long[] nearest = new long[vertexCount]; // 顶点到已有地标的最近距离，不连通为Long.MAX_VALUE
+        Arrays.fill(nearest, Long.MAX_VALUE);
+        DijkstraSearch search = DijkstraSearch.acquire();
+        for (int i = 0; i < k; i++) {
+            int landmark = first;
+            if (i > 0) {
+                landmark = -1;
+                for (int v = 0; v < vertexCount; v++) {
+                    if (nearest[v] > 0 && adjacency.degree(v) + reverse.degree(v) > 0
+                            && (landmark < 0 || nearest[v] > nearest[landmark])) {
+                        landmark = v;
+                    }
+                }
+            }
+            landmarks[i] = landmark;
+            
+            search.searchAll(adjacency, landmark);
+            for (int v = 0; v < vertexCount; v++) {
+                int d = search.isReached(v) ? search.distance(v) : UNREACHABLE;
+                fromLandmark[v * k + i] = d;
+                if (d != UNREACHABLE) {
+                    nearest[v] = Math.min(nearest[v], d);
+                }
+            }
+            search.searchAll(reverse, landmark);
+            for (int v = 0; v < vertexCount; v++) {
+                int d = search.isReached(v) ? search.distance(v) : UNREACHABLE;
+                toLandmark[v * k + i] = d;
+                if (d != UNREACHABLE) {
+                    nearest[v] = Math.min(nearest[v], d);
+                }
+            }
+        }
+        return new LandmarkIndex(graph, vertexCount, landmarks, fromLandmark, toLandmark);
+    }
+    
+    /**
+     * 判断索引是否由给定的图在当前版本下构建
+     * @param graph 图结构
+     * @return 是否仍然有效
+     */
+    public boolean isCurrent(TextGraph graph) {
+        return this.graph == graph && version == graph.getVersion();
+    }
+    
+    /**
+     * 获取地标单词
+     * @return 地标单词列表
+     */
+    public List<String> getLandmarks() {
+        List<String> words = new ArrayList<>(landmarks.length);
+        for (int landmark : landmarks) {
+            words.add(graph.getWord(landmark));
+        }
+        return words;
+    }
+    
+    /**
+     * 使用A*搜索计算两个单词之间的最短路径
+     * @param startWord 起始单词
+     * @param endWord 目标单词
+     * @return 最短路径，如果单词不存在或不可达则返回空列表
+     */
+    public List<String> shortestPath(String startWord, String endWord) {
+        List<String> path = new ArrayList<>();
+        int source = indexOf(startWord);
+        int target = indexOf(endWord);
+        if (source < 0 || target < 0) {
+            return path;
+        }
+        
+        DijkstraSearch search = DijkstraSearch.acquire();
+        if (search.search(graph.getAdjacency(), source, target, v -> lowerBound(v, target)) < 0) {
+            return path;
+        }
+        for (int v : search.path(target)) {
+            path.add(graph.getWord(v));
+        }
+        return path;
+    }
+    
+    /**
+     * 计算顶点到目标距离的下界
+     * 如果目标能到达某个地标而顶点不能，或者某个地标能到达顶点而不能到达目标，则顶点一定无法到达目标
+     * @param vertex 顶点
+     * @param target 目标
+     * @return 下界，如果顶点一定无法到达目标则返回-1
+     */
+    int lowerBound(int vertex, int target) {
+        int k = landmarks.length;
+        int v = vertex * k;
+        int t = target * k;
+        int bound = 0;
+        for (int i = 0; i < k; i++) {
+            int vl = toLandmark[v + i];
+            int tl = toLandmark[t + i];
+            if (tl != UNREACHABLE) {
+                if (vl == UNREACHABLE) {
+                    return -1;
+                }
+                bound = Math.max(bound, vl - tl);
+            }
+            int lv = fromLandmark[v + i];
+            int lt = fromLandmark[t + i];
+            if (lv != UNREACHABLE) {
+                if (lt == UNREACHABLE) {
+                    return -1;
+                }
+                bound = Math.max(bound, lt - lv);
+            }
+        }
+        return bound;
+    }
+    
+    /**
+     * 获取单词在索引中的编号
+     * @param word 单词
+     * @return 编号，如果不存在则返回-1
+     */
+    private int indexOf(String word) {
+        if (!graph.containsWord(word)) {
+            return -1;
+        }
+        int index = graph.getIndex(word);
+        return index < vertexCount ? index : -1;
+    }
+}
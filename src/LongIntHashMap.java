@@ -0,0 +1,197 @@
+import java.util.Arrays;
+
+/**
+ * long到int的开放寻址哈希表
+ * 键和值直接存放在基本类型数组中，查找和累加不需要装箱，也不会为每个条目分配节点。
+ * 主要用于统计打包为 起点<<32|终点 的边权重
+ */
+public class LongIntHashMap {
+    private static final long FREE = Long.MIN_VALUE; // 空槽位标记，不能作为键使用
+    
+    private long[] keys; // 键，FREE表示空槽位
+    private int[] values; // 值
+    private int size; // 条目数量
+    
+    /**
+     * 构造函数，创建空表
+     */
+    public LongIntHashMap() {
+        this(16);
+    }
+    
+    /**
+     * 构造函数，按预计条目数创建空表，避免插入过程中反复扩容
+     * @param expectedSize 预计条目数
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+    }
+    
+    /**
+     * 构造函数，复制另一个表
+     * @param other 被复制的表
+     */
+    public LongIntHashMap(LongIntHashMap other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+    }
+    
+    /**
+     * 将键对应的值加上增量，键不存在时视为0
+     * @param key 键，不能为Long.MIN_VALUE
+     * @param delta 增量
+     * @return 累加后的值
+     */
+    public int add(long key, int delta) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Key not supported: " + key);
+        }
+        int slot = findSlot(key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            values[slot] = delta;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+            return delta;
+        }
+        return values[slot] += delta;
+    }
+    
+    /**
+     * 将另一个表的所有条目累加到当前表中
+     * @param other 另一个表
+     */
+    public void addAll(LongIntHashMap other) {
+        for (int slot = other.nextSlot(0); slot >= 0; slot = other.nextSlot(slot + 1)) {
+            add(other.keys[slot], other.values[slot]);
+        }
+    }
+    
+    /**
+     * 获取键对应的值
+     * @param key 键
+     * @return 值，如果不存在则返回0
+     */
+    public int get(long key) {
+        int slot = findSlot(key);
+        return keys[slot] == FREE ? 0 : values[slot];
+    }
+    
+    /**
+     * 判断键是否存在
+     * @param key 键
+     * @return 是否存在
+     */
+    public boolean containsKey(long key) {
+        return key != FREE && keys[findSlot(key)] != FREE;
+    }
+    
+    /**
+     * 获取条目数量
+     * @return 条目数量
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 判断表是否为空
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * 清空所有条目，保留已分配的容量
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, FREE);
+            size = 0;
+        }
+    }
+    
+    /**
+     * 查找不小于给定位置的第一个已使用槽位，用于遍历：
+     * for (int slot = map.nextSlot(0); slot >= 0; slot = map.nextSlot(slot + 1))
+     * @param from 起始槽位
+     * @return 已使用的槽位，如果没有则返回-1
+     */
+    public int nextSlot(int from) {
+        for (int slot = from; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 获取槽位中的键
+     * @param slot 已使用的槽位
+     * @return 键
+     */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+    
+    /**
+     * 获取槽位中的值
+     * @param slot 已使用的槽位
+     * @return 值
+     */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+    
+    /**
+     * 查找键所在的槽位
+     * @param key 键
+     * @return 命中的槽位，或者可以插入的空槽位
+     */
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    /**
+     * 将表扩容为原来的两倍
+     */
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        values = new int[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    /**
+     * 打散键的各个位，使相邻的键分布到不同槽位
+     * @param key 键
+     * @return 打散后的哈希值
+     */
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -5,7 +5,20 @@ import java.io.*;
 import java.util.*;
 
 public class Main {
-    private static TextGraph graph;
+    private static final TextGraphPublisher graphPublisher = new TextGraphPublisher(); // 发布只读图快照，查询不受加载和追加影响
+    private static final BridgeWordCache bridgeWordCache = new BridgeWordCache(4096); // 桥接词查询缓存
+    private static volatile DistanceTable distanceTable; // 预计算的全源最短距离表，图修改后失效
+    private static java.nio.file.Path distanceTableFile; // 距离表所在的临时文件，只在事件线程中访问
+    private static Thread distanceTableThread; // 正在预计算距离表的线程，只在事件线程中访问
+    private static volatile LandmarkIndex landmarkIndex; // 最短路径查询使用的地标索引，图修改后在后台重新构建
+    private static final java.util.concurrent.atomic.AtomicReference<TextGraph> landmarkTarget =
+            new java.util.concurrent.atomic.AtomicReference<>(); // 正在为其构建地标索引的图
+    private static volatile boolean cachePathTrees; // 是否为最短路径查询的起点构建并缓存最短路径树
+    private static final int LANDMARK_COUNT = 16; // 地标数量
+    private static final int MAX_TABLE_VERTICES = 50000; // 允许预计算距离表的最大顶点数，对应约10GB的表文件
+    private static final double DAMPING_FACTOR = 0.85; // PageRank阻尼系数
+    private static final double PAGE_RANK_TOLERANCE = 1e-6; // PageRank相邻两轮的L1残差容差
+    private static final int PAGE_RANK_MAX_ITERATIONS = 100; // PageRank最大迭代次数
     private static JFrame frame;
     private static JTextArea resultArea;
     private static JPanel graphPanel;
@@ -27,18 +40,28 @@ public class Main {
         // 创建按钮面板
         JPanel buttonPanel = new JPanel();
         JButton loadButton = new JButton("加载文本文件");
+        JButton appendButton = new JButton("追加文本文件");
+        JButton saveSnapshotButton = new JButton("保存图快照");
+        JButton loadSnapshotButton = new JButton("加载图快照");
         JButton showGraphButton = new JButton("显示图结构");
         JButton queryBridgeButton = new JButton("查询桥接词");
         JButton generateTextButton = new JButton("生成新文本");
         JButton shortestPathButton = new JButton("计算最短路径");
+        JButton distanceTableButton = new JButton("预计算距离表");
+        JCheckBox pathTreeBox = new JCheckBox("缓存最短路径树");
         JButton pageRankButton = new JButton("计算PageRank");
         JButton randomWalkButton = new JButton("随机游走");
         
         buttonPanel.add(loadButton);
+        buttonPanel.add(appendButton);
+        buttonPanel.add(saveSnapshotButton);
+        buttonPanel.add(loadSnapshotButton);
         buttonPanel.add(showGraphButton);
         buttonPanel.add(queryBridgeButton);
         buttonPanel.add(generateTextButton);
         buttonPanel.add(shortestPathButton);
+        buttonPanel.add(distanceTableButton);
+        buttonPanel.add(pathTreeBox);
         buttonPanel.add(pageRankButton);
         buttonPanel.add(randomWalkButton);
         
@@ -59,7 +82,11 @@ public class Main {
         
         // 设置按钮事件
         loadButton.addActionListener(e -> loadTextFile());
+        appendButton.addActionListener(e -> appendTextFile());
+        saveSnapshotButton.addActionListener(e -> saveSnapshot());
+        loadSnapshotButton.addActionListener(e -> loadSnapshot());
         showGraphButton.addActionListener(e -> {
+            TextGraph graph = graphPublisher.current();
             if (graph != null) {
                 showDirectedGraph(graph);
             } else {
@@ -70,6 +97,8 @@ public class Main {
         queryBridgeButton.addActionListener(e -> queryBridgeWordsGUI());
         generateTextButton.addActionListener(e -> generateNewTextGUI());
         shortestPathButton.addActionListener(e -> calcShortestPathGUI());
+        distanceTableButton.addActionListener(e -> precomputeDistanceTable());
+        pathTreeBox.addActionListener(e -> cachePathTrees = pathTreeBox.isSelected());
         pageRankButton.addActionListener(e -> calcPageRankGUI());
         randomWalkButton.addActionListener(e -> randomWalkGUI());
         
@@ -86,9 +115,9 @@ public class Main {
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
             try {
-                String text = readFile(selectedFile);
-                // 处理文本并创建图
-                graph = new TextGraph(text);
+                // 通过内存映射并行扫描文件并创建图
+                TextGraph graph = graphPublisher.reset(
+                        new TextGraphBuilder().readMappedParallel(selectedFile.toPath()).build());
                 resultArea.setText("文件加载成功：" + selectedFile.getName() + "\n");
                 resultArea.append("图结构已创建，包含 " + graph.getVertexCount() + " 个单词节点和 " 
                                  + graph.getEdgeCount() + " 条边。");
@@ -98,15 +127,73 @@ public class Main {
         }
     }
     
-    private static String readFile(File file) throws IOException {
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append(" ");
+    // 向已有的图追加文本文件，不重新构建整个图
+    private static void appendTextFile() {
+        TextGraph graph = graphPublisher.current();
+        if (graph == null) {
+            resultArea.setText("请先加载文本文件");
+            return;
+        }
+        
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("文本文件", "txt"));
+        int result = fileChooser.showOpenDialog(frame);
+        
+        if (result == JFileChooser.APPROVE_OPTION) {
+            File selectedFile = fileChooser.getSelectedFile();
+            try {
+                // 逐段读取文件追加，不把整个文件读入内存
+                graph = graphPublisher.append(selectedFile.toPath());
+                resultArea.setText("文件追加成功：" + selectedFile.getName() + "\n");
+                resultArea.append("图结构现在包含 " + graph.getVertexCount() + " 个单词节点和 " 
+                                 + graph.getEdgeCount() + " 条边。");
+            } catch (IOException e) {
+                resultArea.setText("文件读取错误：" + e.getMessage());
+            }
+        }
+    }
+    
+    // 将当前图保存为二进制快照
+    private static void saveSnapshot() {
+        TextGraph graph = graphPublisher.current();
+        if (graph == null) {
+            resultArea.setText("请先加载文本文件");
+            return;
+        }
+        
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("图快照文件", "tgraph"));
+        if (fileChooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            // 确保文件有.tgraph扩展名
+            if (!file.getName().toLowerCase().endsWith(".tgraph")) {
+                file = new File(file.getAbsolutePath() + ".tgraph");
+            }
+            
+            try {
+                graph.save(file.toPath());
+                resultArea.setText("图快照已保存到文件: " + file.getAbsolutePath());
+            } catch (IOException e) {
+                resultArea.setText("保存图快照时发生错误: " + e.getMessage());
+            }
+        }
+    }
+    
+    // 从二进制快照加载图，无需重新处理原始文本；数据通过内存映射留在堆外
+    private static void loadSnapshot() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("图快照文件", "tgraph"));
+        if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+            File selectedFile = fileChooser.getSelectedFile();
+            try {
+                TextGraph graph = graphPublisher.reset(TextGraph.loadOffHeap(selectedFile.toPath()));
+                resultArea.setText("图快照加载成功：" + selectedFile.getName() + "\n");
+                resultArea.append("图结构包含 " + graph.getVertexCount() + " 个单词节点和 " 
+                                 + graph.getEdgeCount() + " 条边。");
+            } catch (IOException e) {
+                resultArea.setText("图快照读取错误：" + e.getMessage());
             }
         }
-        return content.toString();
     }
     
     // 显示有向图
@@ -124,7 +211,7 @@ public class Main {
                 
                 // 获取图的信息
                 java.util.List<String> words = G.getAllWords();
-                int[][] matrix = G.getAdjacencyMatrix();
+                CsrAdjacency adjacency = G.getAdjacency();
                 int nodeCount = words.size();
                 
                 if (nodeCount == 0) {
@@ -163,21 +250,19 @@ public class Main {
                 // 绘制边
                 g2d.setColor(Color.RED);
                 for (int i = 0; i < nodeCount; i++) {
-                    for (int j = 0; j < nodeCount; j++) {
-                        if (matrix[i][j] > 0) {
-                            String word1 = words.get(i);
-                            String word2 = words.get(j);
-                            Point p1 = nodePositions.get(word1);
-                            Point p2 = nodePositions.get(word2);
-                            
-                            // 计算箭头
-                            drawArrow(g2d, p1.x, p1.y, p2.x, p2.y);
-                            
-                            // 绘制权重
-                            int weightX = (p1.x + p2.x) / 2;
-                            int weightY = (p1.y + p2.y) / 2;
-                            g2d.drawString(String.valueOf(matrix[i][j]), weightX, weightY);
-                        }
+                    for (int e = adjacency.start(i); e < adjacency.end(i); e++) {
+                        String word1 = words.get(i);
+                        String word2 = words.get(adjacency.target(e));
+                        Point p1 = nodePositions.get(word1);
+                        Point p2 = nodePositions.get(word2);
+                        
+                        // 计算箭头
+                        drawArrow(g2d, p1.x, p1.y, p2.x, p2.y);
+                        
+                        // 绘制权重
+                        int weightX = (p1.x + p2.x) / 2;
+                        int weightY = (p1.y + p2.y) / 2;
+                        g2d.drawString(String.valueOf(adjacency.weight(e)), weightX, weightY);
                     }
                 }
             }
@@ -238,6 +323,7 @@ public class Main {
     
     // 查询桥接词的GUI实现
     private static void queryBridgeWordsGUI() {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             resultArea.setText("请先加载文本文件");
             return;
@@ -263,6 +349,7 @@ public class Main {
     
     // 查询桥接词
     public static String queryBridgeWords(String word1, String word2) {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             return "图结构未初始化";
         }
@@ -274,7 +361,7 @@ public class Main {
         }
         
         // 获取桥接词
-        java.util.List<String> bridgeWords = graph.getBridgeWords(word1, word2);
+        java.util.List<String> bridgeWords = bridgeWordCache.getBridgeWords(graph, word1, word2);
         
         // 根据桥接词数量构建返回信息
         if (bridgeWords.isEmpty()) {
@@ -297,6 +384,7 @@ public class Main {
     
     // 生成新文本的GUI实现
     private static void generateNewTextGUI() {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             resultArea.setText("请先加载文本文件");
             return;
@@ -318,23 +406,13 @@ public class Main {
     
     // 根据bridge word生成新文本
     public static String generateNewText(String inputText) {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             return "图结构未初始化";
         }
         
-        // 处理输入文本，提取单词
-        String processedText = inputText.toLowerCase();
-        processedText = processedText.replaceAll("[\\p{Punct}]", " ");
-        String[] words = processedText.split("\\s+");
-        
-        // 过滤非字母字符
-        java.util.List<String> filteredWords = new ArrayList<>();
-        for (String word : words) {
-            word = word.replaceAll("[^a-z]", "");
-            if (!word.isEmpty()) {
-                filteredWords.add(word);
-            }
-        }
+        // 处理输入文本，提取单词，规则与建图时相同
+        java.util.List<String> filteredWords = Tokenizer.tokenize(inputText);
         
         // 如果单词数量少于2，无法生成新文本
         if (filteredWords.size() < 2) {
@@ -348,8 +426,8 @@ public class Main {
             String word1 = filteredWords.get(i);
             String word2 = filteredWords.get(i + 1);
             
-            // 查找桥接词
-            java.util.List<String> bridgeWords = graph.getBridgeWords(word1, word2);
+            // 查找桥接词，重复出现的单词对直接命中缓存
+            java.util.List<String> bridgeWords = bridgeWordCache.getBridgeWords(graph, word1, word2);
             
             // 如果存在桥接词，随机选择一个插入
             if (!bridgeWords.isEmpty()) {
@@ -370,6 +448,7 @@ public class Main {
     
     // 计算最短路径的GUI实现
     private static void calcShortestPathGUI() {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             resultArea.setText("请先加载文本文件");
             return;
@@ -395,6 +474,7 @@ public class Main {
     
     // 计算两个单词之间的最短路径
     public static String calcShortestPath(String word1, String word2) {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             return "图结构未初始化";
         }
@@ -408,8 +488,26 @@ public class Main {
             return "目标单词 '" + word2 + "' 不存在于图中";
         }
         
-        // 计算最短路径
-        java.util.List<String> path = GraphAlgorithms.shortestPath(graph, word1, word2);
+        // 已为当前图预计算距离表时直接查表；起点已有缓存的最短路径树时沿前驱回溯，
+        // 勾选了缓存最短路径树时为起点构建一棵；否则地标索引就绪时使用A*搜索，
+        // 索引在后台构建期间使用双向Dijkstra搜索
+        java.util.List<String> path;
+        DistanceTable table = distanceTable;
+        if (table != null && table.isCurrent(graph)) {
+            path = table.getPath(word1, word2);
+        } else {
+            ShortestPathTree tree = cachePathTrees
+                                    ? GraphAlgorithms.shortestPathTree(graph, word1)
+                                    : GraphAlgorithms.cachedShortestPathTree(graph, word1);
+            LandmarkIndex landmarks = tree == null ? landmarksFor(graph) : null;
+            if (tree != null) {
+                path = tree.getPath(word2);
+            } else if (landmarks != null) {
+                path = landmarks.shortestPath(word1, word2);
+            } else {
+                path = GraphAlgorithms.shortestPath(graph, word1, word2);
+            }
+        }
         
         // 如果路径为空，表示不可达
         if (path.isEmpty()) {
@@ -423,7 +521,7 @@ public class Main {
         }
         
         // 在图上显示路径
-        showPathInGraph((java.util.List<String>) path);
+        showPathInGraph(graph, (java.util.List<String>) path);
         
         // 构建路径字符串
         StringBuilder pathStr = new StringBuilder();
@@ -437,8 +535,136 @@ public class Main {
                "路径长度：" + pathLength;
     }
     
+    // 获取当前图的地标索引；索引不是为当前图构建的时候在后台线程中重新构建并返回null，
+    // 构建需要对每个地标运行两次完整的Dijkstra搜索，不能在事件线程中进行
+    private static LandmarkIndex landmarksFor(TextGraph graph) {
+        LandmarkIndex index = landmarkIndex;
+        if (index != null && index.isCurrent(graph)) {
+            return index;
+        }
+        TextGraph target = landmarkTarget.get();
+        if (target != graph && landmarkTarget.compareAndSet(target, graph)) {
+            Thread landmarkThread = new Thread(() -> {
+                try {
+                    LandmarkIndex built = GraphAlgorithms.buildLandmarks(graph, LANDMARK_COUNT);
+                    // 构建期间图又被替换时，结果已经过时，留给下一次查询重新构建
+                    if (landmarkTarget.get() == graph) {
+                        landmarkIndex = built;
+                    }
+                } finally {
+                    landmarkTarget.compareAndSet(graph, null);
+                }
+            });
+            landmarkThread.setDaemon(true);
+            landmarkThread.start();
+        }
+        return null;
+    }
+    
+    // 在后台为当前图预计算全源最短距离表，表存放在临时文件的内存映射中
+    private static void precomputeDistanceTable() {
+        TextGraph graph = graphPublisher.current();
+        if (graph == null) {
+            resultArea.setText("请先加载文本文件");
+            return;
+        }
+        
+        if (distanceTableThread != null && distanceTableThread.isAlive()) {
+            resultArea.setText("距离表正在预计算中，请稍候");
+            return;
+        }
+        DistanceTable current = distanceTable;
+        if (current != null && current.isCurrent(graph)) {
+            resultArea.setText("当前图的距离表已经预计算完成，最短路径查询将直接查表。");
+            return;
+        }
+        
+        // 表文件大小与顶点数的平方成正比，只用于中等规模的图，并在开始前确认大小
+        int vertexCount = graph.getVertexCount();
+        long tableBytes = DistanceTable.sizeInBytes(vertexCount);
+        String tableSize = String.format("%.1f MB", tableBytes / (1024.0 * 1024.0));
+        if (vertexCount > MAX_TABLE_VERTICES) {
+            resultArea.setText("图中有 " + vertexCount + " 个单词节点，距离表需要 " + tableSize + "，"
+                               + "超过了 " + MAX_TABLE_VERTICES + " 个节点的上限，未进行预计算。");
+            return;
+        }
+        java.nio.file.Path tempDir = java.nio.file.Paths.get(System.getProperty("java.io.tmpdir"));
+        long usableBytes;
+        try {
+            // 旧的表文件会在开始计算前删除，它占用的空间也可以使用
+            usableBytes = java.nio.file.Files.getFileStore(tempDir).getUsableSpace();
+            if (distanceTableFile != null && java.nio.file.Files.exists(distanceTableFile)) {
+                usableBytes += java.nio.file.Files.size(distanceTableFile);
+            }
+        } catch (IOException e) {
+            resultArea.setText("无法获取临时目录的可用空间: " + e.getMessage());
+            return;
+        }
+        if (tableBytes > usableBytes) {
+            resultArea.setText("距离表需要 " + tableSize + "，临时目录 " + tempDir + " 只剩 "
+                               + String.format("%.1f MB", usableBytes / (1024.0 * 1024.0)) + "，未进行预计算。");
+            return;
+        }
+        int confirm = JOptionPane.showConfirmDialog(frame,
+                "将为 " + vertexCount + " 个单词节点预计算距离表，\n"
+                + "需要在临时目录 " + tempDir + " 中创建 " + tableSize + " 的文件。是否继续？",
+                "预计算距离表", JOptionPane.OK_CANCEL_OPTION);
+        if (confirm != JOptionPane.OK_OPTION) {
+            return;
+        }
+        
+        // 丢弃旧表并删除其文件，映射在旧表被回收后释放，磁盘空间随之归还
+        distanceTable = null;
+        deleteDistanceTableFile();
+        java.nio.file.Path file;
+        try {
+            file = java.nio.file.Files.createTempFile(tempDir, "distances", ".bin");
+        } catch (IOException e) {
+            resultArea.setText("创建距离表文件时发生错误: " + e.getMessage());
+            return;
+        }
+        file.toFile().deleteOnExit();
+        distanceTableFile = file;
+        
+        resultArea.setText("正在为 " + vertexCount + " 个单词节点预计算距离表（" + tableSize + "），请稍候...");
+        distanceTableThread = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                DistanceTable table = DistanceTable.computeMapped(graph, java.util.concurrent.ForkJoinPool.commonPool(), file);
+                long elapsed = System.currentTimeMillis() - start;
+                SwingUtilities.invokeLater(() -> {
+                    distanceTable = table;
+                    resultArea.setText("距离表预计算完成，用时 " + elapsed + " 毫秒。\n" +
+                                       "图结构未修改前，最短路径查询将直接查表。");
+                });
+            } catch (Throwable e) {
+                // 任何失败都要告知用户并删除不完整的文件，否则状态会一直停留在“请稍候”
+                SwingUtilities.invokeLater(() -> {
+                    if (file.equals(distanceTableFile)) {
+                        deleteDistanceTableFile();
+                    }
+                    resultArea.setText("预计算距离表时发生错误: " + e);
+                });
+            }
+        });
+        distanceTableThread.setDaemon(true);
+        distanceTableThread.start();
+    }
+    
+    // 删除当前的距离表文件
+    private static void deleteDistanceTableFile() {
+        if (distanceTableFile != null) {
+            try {
+                java.nio.file.Files.deleteIfExists(distanceTableFile);
+            } catch (IOException e) {
+                // 文件仍会在退出时删除
+            }
+            distanceTableFile = null;
+        }
+    }
+    
     // 在图上显示路径
-    private static void showPathInGraph(java.util.List<String> path) {
+    private static void showPathInGraph(TextGraph graph, java.util.List<String> path) {
         // 创建自定义绘图面板，高亮显示路径
         JPanel drawingPanel = new JPanel() {
             @Override
@@ -449,7 +675,7 @@ public class Main {
                 
                 // 获取图的信息
                 java.util.List<String> words = graph.getAllWords();
-                int[][] matrix = graph.getAdjacencyMatrix();
+                CsrAdjacency adjacency = graph.getAdjacency();
                 int nodeCount = words.size();
                 
                 if (nodeCount == 0) {
@@ -494,41 +720,39 @@ public class Main {
                 
                 // 绘制边
                 for (int i = 0; i < nodeCount; i++) {
-                    for (int j = 0; j < nodeCount; j++) {
-                        if (matrix[i][j] > 0) {
-                            String word1 = words.get(i);
-                            String word2 = words.get(j);
-                            Point p1 = nodePositions.get(word1);
-                            Point p2 = nodePositions.get(word2);
-                            
-                            // 检查边是否在路径中
-                            boolean isInPath = false;
-                            for (int k = 0; k < path.size() - 1; k++) {
-                                if (path.get(k).equals(word1) && path.get(k + 1).equals(word2)) {
-                                    isInPath = true;
-                                    break;
-                                }
+                    for (int e = adjacency.start(i); e < adjacency.end(i); e++) {
+                        String word1 = words.get(i);
+                        String word2 = words.get(adjacency.target(e));
+                        Point p1 = nodePositions.get(word1);
+                        Point p2 = nodePositions.get(word2);
+                        
+                        // 检查边是否在路径中
+                        boolean isInPath = false;
+                        for (int k = 0; k < path.size() - 1; k++) {
+                            if (path.get(k).equals(word1) && path.get(k + 1).equals(word2)) {
+                                isInPath = true;
+                                break;
                             }
-                            
-                            if (isInPath) {
-                                // 路径中的边用绿色显示
-                                g2d.setColor(Color.GREEN);
-                                // 加粗显示
-                                g2d.setStroke(new BasicStroke(2.5f));
-                            } else {
-                                // 其他边用红色显示
-                                g2d.setColor(Color.RED);
-                                g2d.setStroke(new BasicStroke(1.0f));
-                            }
-                            
-                            // 计算箭头
-                            drawArrow(g2d, p1.x, p1.y, p2.x, p2.y);
-                            
-                            // 绘制权重
-                            int weightX = (p1.x + p2.x) / 2;
-                            int weightY = (p1.y + p2.y) / 2;
-                            g2d.drawString(String.valueOf(matrix[i][j]), weightX, weightY);
                         }
+                        
+                        if (isInPath) {
+                            // 路径中的边用绿色显示
+                            g2d.setColor(Color.GREEN);
+                            // 加粗显示
+                            g2d.setStroke(new BasicStroke(2.5f));
+                        } else {
+                            // 其他边用红色显示
+                            g2d.setColor(Color.RED);
+                            g2d.setStroke(new BasicStroke(1.0f));
+                        }
+                        
+                        // 计算箭头
+                        drawArrow(g2d, p1.x, p1.y, p2.x, p2.y);
+                        
+                        // 绘制权重
+                        int weightX = (p1.x + p2.x) / 2;
+                        int weightY = (p1.y + p2.y) / 2;
+                        g2d.drawString(String.valueOf(adjacency.weight(e)), weightX, weightY);
                     }
                 }
             }
@@ -588,6 +812,7 @@ public class Main {
     
     // 计算PageRank的GUI实现
     private static void calcPageRankGUI() {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             resultArea.setText("请先加载文本文件");
             return;
@@ -602,13 +827,27 @@ public class Main {
                                                   JOptionPane.OK_CANCEL_OPTION);
         if (result == JOptionPane.OK_OPTION) {
             String word = wordField.getText().trim().toLowerCase();
-            Double prValue = calcPageRank(word);
-            resultArea.setText("单词 '" + word + "' 的PageRank值：" + prValue);
+            
+            // 单词的PR值和排名使用同一个快照的同一个向量，期间的追加不会使两者不一致
+            PageRankVector vector = pageRankVector(graph);
+            Double prValue = graph.containsWord(word) ? vector.getRank(word) : -1.0;
+            resultArea.setText("单词 '" + word + "' 的PageRank值：" + prValue + "\n");
+            
+            resultArea.append("迭代次数：" + vector.getIterations() + "，L1残差：" + vector.getResidual()
+                              + (vector.isConverged() ? "（已收敛）" : "（达到最大迭代次数，未收敛）") + "\n\n");
+            
+            // 所有单词的PageRank值已经一并算出，顺便列出排名最高的单词
+            resultArea.append("PageRank值最高的10个单词：\n");
+            int rank = 1;
+            for (Map.Entry<String, Double> entry : vector.top(10)) {
+                resultArea.append(rank++ + ". " + entry.getKey() + "：" + entry.getValue() + "\n");
+            }
         }
     }
     
     // 计算单词的PR值
     public static Double calcPageRank(String word) {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             return -1.0;
         }
@@ -617,12 +856,19 @@ public class Main {
             return -1.0; // 单词不存在于图中
         }
         
-        // 使用阻尼系数0.85，迭代100次计算PageRank
-        return GraphAlgorithms.pageRank(graph, word, 0.85, 100);
+        // 使用阻尼系数0.85，原地迭代到L1残差小于1e-6（最多100次）为止，结果按图的版本缓存
+        return pageRankVector(graph).getRank(word);
+    }
+    
+    // 获取当前图的PageRank向量
+    private static PageRankVector pageRankVector(TextGraph graph) {
+        return GraphAlgorithms.pageRankVector(graph, DAMPING_FACTOR, PAGE_RANK_TOLERANCE,
+                                              PAGE_RANK_MAX_ITERATIONS, true);
     }
 
     // 随机游走的GUI实现
     private static void randomWalkGUI() {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             resultArea.setText("请先加载文本文件");
             return;
@@ -635,6 +881,7 @@ public class Main {
 
     // 执行随机游走并返回结果
     public static String randomWalk() {
+        TextGraph graph = graphPublisher.current();
         if (graph == null) {
             return "图结构未初始化";
         }
@@ -714,7 +961,7 @@ public class Main {
             try {
                 // 执行随机游走
                 java.util.List<String> allWords = graph.getAllWords();
-                int[][] matrix = graph.getAdjacencyMatrix();
+                CsrAdjacency adjacency = graph.getAdjacency();
                 int vertexCount = allWords.size();
                 
                 // 确定起始节点
@@ -741,18 +988,11 @@ public class Main {
                 // 开始随机游走
                 while (!stopWalk[0]) {
                     // 获取当前节点的索引
-                    int currentIndex = allWords.indexOf(currentWord);
-                    
-                    // 查找当前节点的所有出边
-                    java.util.List<Integer> neighbors = new ArrayList<>();
-                    for (int i = 0; i < vertexCount; i++) {
-                        if (matrix[currentIndex][i] > 0) {
-                            neighbors.add(i);
-                        }
-                    }
+                    int currentIndex = graph.getIndex(currentWord);
                     
                     // 如果没有出边，结束游走
-                    if (neighbors.isEmpty()) {
+                    int degree = adjacency.degree(currentIndex);
+                    if (degree == 0) {
                         if (walkTextAreaRef[0] != null) {
                             walkTextAreaRef[0].append("节点 " + currentWord + " 没有出边，游走结束\n");
                         }
@@ -761,7 +1001,7 @@ public class Main {
                     
                     // 随机选择一个邻居
                     Random random = new Random();
-                    int nextIndex = neighbors.get(random.nextInt(neighbors.size()));
+                    int nextIndex = adjacency.target(adjacency.start(currentIndex) + random.nextInt(degree));
                     String nextWord = allWords.get(nextIndex);
                     
                     // 构造边的标识
@@ -800,7 +1040,7 @@ public class Main {
                 }
                 
                 // 在图上显示路径
-                SwingUtilities.invokeLater(() -> showPathInGraph(path));
+                SwingUtilities.invokeLater(() -> showPathInGraph(graph, path));
                 
                 // 构建路径字符串
                 StringBuilder pathStr = new StringBuilder("随机游走路径：\n");
@@ -0,0 +1,277 @@
+import java.util.*;
+
+/**
+ * PageRank向量
+ * 一次计算出图中所有单词的PageRank值：每个顶点的出边权重之和与出度为0的顶点列表只计算一次，
+ * 每轮迭代沿CSR出边把贡献推给后继，两个数组交替使用，不在迭代中分配内存。
+ * 可以固定迭代次数，也可以在相邻两轮的L1残差小于容差时提前停止，并报告实际迭代次数和最终残差；
+ * 后者还支持Gauss-Seidel式的原地更新，每个顶点沿入边汇总时直接使用本轮已经更新过的值，通常收敛更快。
+ * 计算完成后按单词查询为O(1)，并支持取PageRank最高的前N个单词。
+ * 向量与计算时的图对象、版本号和参数绑定，构建完成后不再修改，可以在多个线程之间共享
+ */
+public class PageRankVector {
+    private final TextGraph graph; // 计算时使用的图
+    private final long version; // 计算时图的版本号
+    private final double dampingFactor; // 阻尼系数
+    private final double tolerance; // L1残差容差，0表示固定迭代次数
+    private final int maxIterations; // 最大迭代次数
+    private final boolean gaussSeidel; // 是否使用原地更新
+    private final double[] ranks; // 每个顶点的PageRank值
+    private final int iterations; // 实际迭代次数
+    private final double residual; // 最后一轮的L1残差
+    
+    /**
+     * 构造函数
+     * @param graph 计算时使用的图
+     * @param version 计算时图的版本号
+     * @param dampingFactor 阻尼系数
+     * @param tolerance L1残差容差
+     * @param maxIterations 最大迭代次数
+     * @param gaussSeidel 是否使用原地更新
+     * @param ranks 每个顶点的PageRank值
+     * @param iterations 实际迭代次数
+     * @param residual 最后一轮的L1残差
+     */
+    private PageRankVector(TextGraph graph, long version, double dampingFactor, double tolerance, int maxIterations,
+                           boolean gaussSeidel, double[] ranks, int iterations, double residual) {
+        this.graph = graph;
+        this.version = version;
+        this.dampingFactor = dampingFactor;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.gaussSeidel = gaussSeidel;
+        this.ranks = ranks;
+        this.iterations = iterations;
+        this.residual = residual;
+    }
+    
+    /**
+     * 以固定迭代次数计算所有顶点的PageRank值
+     * @param graph 图结构
+     * @param dampingFactor 阻尼系数
+     * @param iterations 迭代次数
+     * @return PageRank向量
+     */
+    static PageRankVector compute(TextGraph graph, double dampingFactor, int iterations) {
+        return compute(graph, dampingFactor, 0.0, iterations, false);
+    }
+    
+    /**
+     * 计算所有顶点的PageRank值，相邻两轮的L1残差小于容差或达到最大迭代次数时停止
+     * @param graph 图结构
+     * @param dampingFactor 阻尼系数
+     * @param tolerance L1残差容差，为0时总是迭代maxIterations次
+     * @param maxIterations 最大迭代次数
+     * @param gaussSeidel 是否使用原地更新
+     * @return PageRank向量
+     */
+    static PageRankVector compute(TextGraph graph, double dampingFactor, double tolerance, int maxIterations,
+                                  boolean gaussSeidel) {
+        if (tolerance < 0 || maxIterations < 0) {
+            throw new IllegalArgumentException("Invalid tolerance or maxIterations: " + tolerance + ", " + maxIterations);
+        }
+        long version = graph.getVersion();
+        CsrAdjacency adjacency = graph.getAdjacency();
+        int vertexCount = adjacency.vertexCount();
+        
+        // 出边权重之和与出度为0的顶点只计算一次
+        long[] outWeight = new long[vertexCount];
+        int[] sinks = new int[vertexCount];
+        int sinkCount = 0;
+        for (int j = 0; j < vertexCount; j++) {
+            for (int e = adjacency.start(j); e < adjacency.end(j); e++) {
+                outWeight[j] += adjacency.weight(e);
+            }
+            if (adjacency.degree(j) == 0) {
+                sinks[sinkCount++] = j;
+            }
+        }
+        
+        double[] pr = new double[vertexCount];
+        Arrays.fill(pr, 1.0 / vertexCount);
+        if (gaussSeidel) {
+            return gaussSeidel(graph, version, dampingFactor, tolerance, maxIterations, outWeight, sinks, sinkCount, pr);
+        }
+        
+        double[] newPr = new double[vertexCount];
+        int iter = 0;
+        double residual = Double.NaN;
+        while (iter < maxIterations) {
+            // 出度为0的节点将其PR值均分给所有节点
+            double sinkPR = 0;
+            for (int i = 0; i < sinkCount; i++) {
+                sinkPR += pr[sinks[i]] / vertexCount;
+            }
+            
+            // 随机跳转部分和出度为0的节点贡献
+            Arrays.fill(newPr, (1.0 - dampingFactor) / vertexCount + dampingFactor * sinkPR);
+            
+            // 加上其他节点沿出边的贡献，根据边权重分配
+            for (int j = 0; j < vertexCount; j++) {
+                double scaled = dampingFactor * pr[j];
+                for (int e = adjacency.start(j), end = adjacency.end(j); e < end; e++) {
+                    newPr[adjacency.target(e)] += scaled * adjacency.weight(e) / outWeight[j];
+                }
+            }
+            
+            // 与上一轮相比的L1残差
+            residual = 0;
+            for (int i = 0; i < vertexCount; i++) {
+                residual += Math.abs(newPr[i] - pr[i]);
+            }
+            
+            double[] swap = pr;
+            pr = newPr;
+            newPr = swap;
+            iter++;
+            if (residual < tolerance) {
+                break;
+            }
+        }
+        return new PageRankVector(graph, version, dampingFactor, tolerance, maxIterations, false, pr, iter, residual);
+    }
+    
+    /**
+     * 以Gauss-Seidel方式迭代：按顶点顺序沿入边汇总前驱的贡献并立即写回，
+     * 排在前面的前驱在本轮已经更新，出度为0的节点贡献的总量也随写回同步调整
+     * @param graph 图结构
+     * @param version 计算时图的版本号
+     * @param dampingFactor 阻尼系数
+     * @param tolerance L1残差容差
+     * @param maxIterations 最大迭代次数
+     * @param outWeight 每个顶点的出边权重之和
+     * @param sinks 出度为0的顶点
+     * @param sinkCount 出度为0的顶点数
+     * @param pr 初始PageRank值，原地更新
+     * @return PageRank向量
+     */
+    private static PageRankVector gaussSeidel(TextGraph graph, long version, double dampingFactor, double tolerance,
+                                              int maxIterations, long[] outWeight, int[] sinks, int sinkCount,
+                                              double[] pr) {
+        CsrAdjacency reverse = graph.getReverseAdjacency();
+        int vertexCount = pr.length;
+        double sinkPR = 0;
+        for (int i = 0; i < sinkCount; i++) {
+            sinkPR += pr[sinks[i]] / vertexCount;
+        }
+        
+        int iter = 0;
+        double residual = Double.NaN;
+        while (iter < maxIterations) {
+            residual = 0;
+            for (int i = 0; i < vertexCount; i++) {
+                double sum = 0;
+                for (int e = reverse.start(i), end = reverse.end(i); e < end; e++) {
+                    int j = reverse.target(e);
+                    sum += pr[j] * reverse.weight(e) / outWeight[j];
+                }
+                double value = (1.0 - dampingFactor) / vertexCount + dampingFactor * sinkPR + dampingFactor * sum;
+                double delta = value - pr[i];
+                if (outWeight[i] == 0) {
+                    sinkPR += delta / vertexCount;
+                }
+                residual += Math.abs(delta);
+                pr[i] = value;
+            }
+            
+            // 原地更新不保持总和为1，归一化以消除总量的漂移，否则收敛速度受限于阻尼系数
+            double total = 0;
+            for (int i = 0; i < vertexCount; i++) {
+                total += pr[i];
+            }
+            for (int i = 0; i < vertexCount; i++) {
+                pr[i] /= total;
+            }
+            sinkPR /= total;
+            iter++;
+            if (residual < tolerance) {
+                break;
+            }
+        }
+        return new PageRankVector(graph, version, dampingFactor, tolerance, maxIterations, true, pr, iter, residual);
+    }
+    
+    /**
+     * 判断向量是否由给定的图在当前版本下以相同参数计算得到
+     * @param graph 图结构
+     * @param dampingFactor 阻尼系数
+     * @param tolerance L1残差容差
+     * @param maxIterations 最大迭代次数
+     * @param gaussSeidel 是否使用原地更新
+     * @return 是否可以复用
+     */
+    boolean matches(TextGraph graph, double dampingFactor, double tolerance, int maxIterations, boolean gaussSeidel) {
+        return this.graph == graph && version == graph.getVersion() && this.dampingFactor == dampingFactor
+                && this.tolerance == tolerance && this.maxIterations == maxIterations && this.gaussSeidel == gaussSeidel;
+    }
+    
+    /**
+     * 获取实际迭代次数
+     * @return 迭代次数
+     */
+    public int getIterations() {
+        return iterations;
+    }
+    
+    /**
+     * 获取最后一轮与上一轮之间的L1残差
+     * @return L1残差，没有迭代时返回NaN
+     */
+    public double getResidual() {
+        return residual;
+    }
+    
+    /**
+     * 判断是否在最大迭代次数内达到了容差
+     * @return 是否收敛，固定迭代次数时总是返回false
+     */
+    public boolean isConverged() {
+        return residual < tolerance;
+    }
+    
+    /**
+     * 获取单词的PageRank值
+     * @param word 单词
+     * @return PageRank值，如果单词不存在则返回0.0
+     */
+    public double getRank(String word) {
+        if (!graph.containsWord(word)) {
+            return 0.0;
+        }
+        int index = graph.getIndex(word);
+        return index < ranks.length ? ranks[index] : 0.0;
+    }
+    
+    /**
+     * 获取PageRank值最高的前n个单词
+     * 用大小为n的最小堆扫描一遍向量，代价为O(V log n)
+     * @param n 单词个数
+     * @return 单词及其PageRank值，按PageRank值从大到小排列，相同时按单词索引排列
+     */
+    public List<Map.Entry<String, Double>> top(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        Comparator<Integer> order = (a, b) -> {
+            int c = Double.compare(ranks[a], ranks[b]);
+            return c != 0 ? c : Integer.compare(b, a);
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, Math.min(n, ranks.length)), order);
+        for (int i = 0; i < ranks.length && n > 0; i++) {
+            if (heap.size() < n) {
+                heap.add(i);
+            } else if (order.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        
+        List<Map.Entry<String, Double>> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            int index = heap.poll();
+            result.add(new AbstractMap.SimpleImmutableEntry<>(graph.getWord(index), ranks[index]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
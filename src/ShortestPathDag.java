@@ -0,0 +1,272 @@
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 最短路径DAG
+ * 保存从起点到目标的所有最短路径共同构成的有向无环图：每个节点只记录
+ * 满足 距离(前驱)+边权 = 距离(节点) 的前驱。图只构建一次，
+ * 最短路径的条数通过动态规划计算，路径本身在遍历时按需逐条生成，
+ * 不会像逐条复制路径列表那样随并列路径数量指数增长。
+ * 构建完成后与原图无关，可以在任意线程中使用
+ */
+public class ShortestPathDag implements Iterable<List<String>> {
+    private final String[] words; // 节点对应的单词，节点0为目标
+    private final int[] distances; // 节点到起点的最短距离
+    private final int[] predecessorOffsets; // 节点前驱列表的起始位置，长度为节点数+1
+    private final int[] predecessors; // 所有节点的前驱列表
+    private final int source; // 起点对应的节点，-1表示目标不可达
+    private BigInteger pathCount; // 最短路径条数，首次查询时计算
+    
+    /**
+     * 构造函数
+     * @param words 节点对应的单词
+     * @param distances 节点到起点的最短距离
+     * @param predecessorOffsets 节点前驱列表的起始位置
+     * @param predecessors 所有节点的前驱列表
+     * @param source 起点对应的节点，-1表示目标不可达
+     */
+    private ShortestPathDag(String[] words, int[] distances, int[] predecessorOffsets, int[] predecessors, int source) {
+        this.words = words;
+        this.distances = distances;
+        this.predecessorOffsets = predecessorOffsets;
+        this.predecessors = predecessors;
+        this.source = source;
+    }
+    
+    /**
+     * 创建表示目标不可达的空DAG
+     * @return 空DAG
+     */
+    static ShortestPathDag unreachable() {
+        return new ShortestPathDag(new String[0], new int[0], new int[] {0}, new int[0], -1);
+    }
+    
+    /**
+     * 构建从起点到目标的最短路径DAG
+     * 先用Dijkstra搜索到目标确定为止，再从目标沿入边反向收集所有紧的前驱。
+     * 边权都是正数，最短路径上除目标外的节点距离都小于目标，在搜索停止前都已确定
+     * @param graph 图结构
+     * @param startIndex 起点索引
+     * @param endIndex 目标索引
+     * @return 最短路径DAG
+     */
+    static ShortestPathDag build(TextGraph graph, int startIndex, int endIndex) {
+        CsrAdjacency adjacency = graph.getAdjacency();
+        CsrAdjacency reverse = graph.getReverseAdjacency();
+        DijkstraSearch search = DijkstraSearch.acquire();
+        if (search.search(adjacency, startIndex, endIndex) < 0) {
+            return unreachable();
+        }
+        
+        // 从目标开始按广度优先顺序给节点编号，处理节点时追加它的前驱，前驱列表因此按节点编号连续存放
+        LongIntHashMap localIndex = new LongIntHashMap(); // 顶点 -> 节点编号+1
+        int[] vertices = new int[16];
+        int[] offsets = new int[17];
+        int[] preds = new int[16];
+        int nodeCount = 1;
+        int predCount = 0;
+        vertices[0] = endIndex;
+        localIndex.add(endIndex, 1);
+        for (int node = 0; node < nodeCount; node++) {
+            int vertex = vertices[node];
+            offsets[node] = predCount;
+            if (vertex == startIndex) {
+                continue;
+            }
+            int dist = search.distance(vertex);
+            for (int e = reverse.start(vertex), end = reverse.end(vertex); e < end; e++) {
+                int pred = reverse.target(e);
+                if (!search.isSettled(pred) || (long) search.distance(pred) + reverse.weight(e) != dist) {
+                    continue;
+                }
+                int predNode = localIndex.get(pred) - 1;
+                if (predNode < 0) {
+                    if (nodeCount == vertices.length) {
+                        vertices = Arrays.copyOf(vertices, nodeCount * 2);
+                        offsets = Arrays.copyOf(offsets, nodeCount * 2 + 1);
+                    }
+                    predNode = nodeCount++;
+                    vertices[predNode] = pred;
+                    localIndex.add(pred, predNode + 1);
+                }
+                if (predCount == preds.length) {
+                    preds = Arrays.copyOf(preds, predCount * 2);
+                }
+                preds[predCount++] = predNode;
+            }
+        }
+        offsets[nodeCount] = predCount;
+        
+        String[] words = new String[nodeCount];
+        int[] distances = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            words[node] = graph.getWord(vertices[node]);
+            distances[node] = search.distance(vertices[node]);
+        }
+        return new ShortestPathDag(words, distances, Arrays.copyOf(offsets, nodeCount + 1),
+                                   Arrays.copyOf(preds, predCount), localIndex.get(startIndex) - 1);
+    }
+    
+    /**
+     * 判断目标是否可达
+     * @return 是否可达
+     */
+    public boolean isReachable() {
+        return source >= 0;
+    }
+    
+    /**
+     * 获取最短路径长度（边权值之和）
+     * @return 最短路径长度，如果不可达则返回-1
+     */
+    public int getDistance() {
+        return source >= 0 ? distances[0] : -1;
+    }
+    
+    /**
+     * 获取DAG中的节点数，即至少位于一条最短路径上的单词数
+     * @return 节点数
+     */
+    public int getNodeCount() {
+        return words.length;
+    }
+    
+    /**
+     * 计算最短路径的条数，按距离从小到大对每个节点累加其前驱的路径数，不逐条枚举
+     * @return 最短路径条数，如果不可达则返回0
+     */
+    public synchronized BigInteger getPathCount() {
+        if (pathCount != null) {
+            return pathCount;
+        }
+        if (source < 0) {
+            return pathCount = BigInteger.ZERO;
+        }
+        
+        // 前驱的距离一定小于节点自身，按距离排序即为拓扑序
+        Integer[] order = new Integer[words.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(node -> distances[node]));
+        
+        BigInteger[] counts = new BigInteger[words.length];
+        for (int node : order) {
+            if (node == source) {
+                counts[node] = BigInteger.ONE;
+                continue;
+            }
+            BigInteger count = BigInteger.ZERO;
+            for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+                count = count.add(counts[predecessors[i]]);
+            }
+            counts[node] = count;
+        }
+        return pathCount = counts[0];
+    }
+    
+    /**
+     * 获取最多maxPaths条最短路径
+     * @param maxPaths 最多返回的路径条数
+     * @return 路径列表，每条路径从起点到目标
+     */
+    public List<List<String>> getPaths(int maxPaths) {
+        if (maxPaths < 0) {
+            throw new IllegalArgumentException("maxPaths must not be negative: " + maxPaths);
+        }
+        List<List<String>> paths = new ArrayList<>();
+        Iterator<List<String>> it = iterator();
+        while (paths.size() < maxPaths && it.hasNext()) {
+            paths.add(it.next());
+        }
+        return paths;
+    }
+    
+    /**
+     * 以流的形式按需生成所有最短路径，可以配合limit()限制条数
+     * @return 路径流
+     */
+    public Stream<List<String>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    
+    /**
+     * 按需逐条生成所有最短路径，每生成一条路径的代价与路径长度成正比
+     * @return 路径迭代器，每条路径从起点到目标
+     */
+    @Override
+    public Iterator<List<String>> iterator() {
+        return new PathIterator();
+    }
+    
+    /**
+     * 路径迭代器
+     * 从目标开始沿前驱深度优先遍历，栈中保存当前路径上的节点和下一个待尝试的前驱位置；
+     * DAG中的每个节点都能回到起点，因此遍历不会走入死胡同
+     */
+    private final class PathIterator implements Iterator<List<String>> {
+        private final int[] stackNodes = new int[words.length]; // 当前路径上的节点，栈底为目标
+        private final int[] stackCursors = new int[words.length]; // 每个节点下一个待尝试的前驱位置
+        private int depth; // 栈深度
+        private boolean started; // 是否已经开始遍历
+        private boolean ready; // 栈中是否为尚未返回的完整路径
+        
+        PathIterator() {
+            if (source >= 0) {
+                stackNodes[0] = 0;
+                stackCursors[0] = predecessorOffsets[0];
+                depth = 1;
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (!ready) {
+                ready = advance();
+            }
+            return ready;
+        }
+        
+        @Override
+        public List<String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            List<String> path = new ArrayList<>(depth);
+            for (int i = depth - 1; i >= 0; i--) {
+                path.add(words[stackNodes[i]]);
+            }
+            return path;
+        }
+        
+        /**
+         * 推进到下一条完整路径
+         * @return 是否找到
+         */
+        private boolean advance() {
+            if (started && depth > 0) {
+                depth--; // 弹出上一条路径的起点
+            }
+            started = true;
+            while (depth > 0) {
+                int top = depth - 1;
+                int node = stackNodes[top];
+                if (node == source) {
+                    return true;
+                }
+                if (stackCursors[top] < predecessorOffsets[node + 1]) {
+                    int pred = predecessors[stackCursors[top]++];
+                    stackNodes[depth] = pred;
+                    stackCursors[depth] = predecessorOffsets[pred];
+                    depth++;
+                } else {
+                    depth--;
+                }
+            }
+            return false;
+        }
+    }
+}
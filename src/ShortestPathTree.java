@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单源最短路径树
+ * 用两个与顶点数等长的int数组保存从起点到每个单词的最短距离和最短路径上的前驱，
+ * 构建后查询任意目标只需沿前驱回溯，代价与路径长度成正比。
+ * 构建完成后不再修改，可以在多个线程之间共享
+ */
+public class ShortestPathTree {
+    private final TextGraph graph; // 构建时使用的图，用于单词和索引的转换
+    private final int source; // 起点索引
+    private final int[] distances; // 到每个顶点的最短距离，-1表示不可达
+    private final int[] predecessors; // 每个顶点在最短路径上的前驱，-1表示起点或不可达
+    private final int reachableCount; // 可达顶点的数量（包括起点）
+    
+    /**
+     * 构造函数
+     * @param graph 构建时使用的图
+     * @param source 起点索引
+     * @param distances 到每个顶点的最短距离
+     * @param predecessors 每个顶点在最短路径上的前驱
+     * @param reachableCount 可达顶点的数量
+     */
+    private ShortestPathTree(TextGraph graph, int source, int[] distances, int[] predecessors, int reachableCount) {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        this.reachableCount = reachableCount;
+    }
+    
+    /**
+     * 运行一次不提前停止的Dijkstra搜索，构建以起点为根的最短路径树
+     * @param graph 图结构
+     * @param source 起点索引
+     * @return 最短路径树
+     */
+    static ShortestPathTree build(TextGraph graph, int source) {
+        CsrAdjacency adjacency = graph.getAdjacency();
+        DijkstraSearch search = DijkstraSearch.acquire();
+        int reachableCount = search.searchAll(adjacency, source);
+        
+        int vertexCount = adjacency.vertexCount();
+        int[] distances = new int[vertexCount];
+        int[] predecessors = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            if (search.isReached(v)) {
+                distances[v] = search.distance(v);
+                predecessors[v] = search.predecessor(v);
+            } else {
+                distances[v] = -1;
+                predecessors[v] = -1;
+            }
+        }
+        return new ShortestPathTree(graph, source, distances, predecessors, reachableCount);
+    }
+    
+    /**
+     * 获取起点单词
+     * @return 起点单词
+     */
+    public String getSource() {
+        return graph.getWord(source);
+    }
+    
+    /**
+     * 获取可达单词的数量（包括起点）
+     * @return 可达单词的数量
+     */
+    public int getReachableCount() {
+        return reachableCount;
+    }
+    
+    /**
+     * 判断目标单词是否可达
+     * @param word 目标单词
+     * @return 是否可达
+     */
+    public boolean isReachable(String word) {
+        return getDistance(word) >= 0;
+    }
+    
+    /**
+     * 获取到目标单词的最短路径长度（边权值之和）
+     * @param word 目标单词
+     * @return 最短路径长度，如果单词不存在或不可达则返回-1
+     */
+    public int getDistance(String word) {
+        int index = indexOf(word);
+        return index < 0 ? -1 : distances[index];
+    }
+    
+    /**
+     * 获取到目标单词的最短路径
+     * @param word 目标单词
+     * @return 最短路径，从起点到目标单词；如果单词不存在或不可达则返回空列表
+     */
+    public List<String> getPath(String word) {
+        int index = indexOf(word);
+        if (index < 0 || distances[index] < 0) {
+            return new ArrayList<>();
+        }
+        
+        int length = 0;
+        for (int v = index; v != -1; v = predecessors[v]) {
+            length++;
+        }
+        String[] path = new String[length];
+        for (int v = index; v != -1; v = predecessors[v]) {
+            path[--length] = graph.getWord(v);
+        }
+        return new ArrayList<>(List.of(path));
+    }
+    
+    /**
+     * 获取单词在树中的索引，树构建之后才加入图中的单词视为不存在
+     * @param word 单词
+     * @return 索引，如果不存在则返回-1
+     */
+    private int indexOf(String word) {
+        if (!graph.containsWord(word)) {
+            return -1;
+        }
+        int index = graph.getIndex(word);
+        return index < distances.length ? index : -1;
+    }
+}
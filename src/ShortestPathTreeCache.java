@@ -0,0 +1,71 @@
+/**
+ * 最短路径树缓存
+ * 以起点单词为键缓存单源最短路径树，容量有限，按最近最少使用（LRU）淘汰，
+ * 线程安全。图对象被替换或版本号变化时自动清空。
+ * 每棵树占用约 8 * 顶点数 字节，容量应按图的规模设置
+ */
+public class ShortestPathTreeCache {
+    private final GraphVersionedCache<String, ShortestPathTree> cache; // 起点单词到最短路径树的缓存
+    
+    /**
+     * 构造函数
+     * @param maxSize 最大缓存条目数
+     */
+    public ShortestPathTreeCache(int maxSize) {
+        this.cache = new GraphVersionedCache<>(maxSize);
+    }
+    
+    /**
+     * 获取以单词为起点的最短路径树，未命中时构建并放入缓存
+     * @param graph 图结构
+     * @param source 起点单词
+     * @return 最短路径树，如果单词不存在则返回null
+     */
+    public ShortestPathTree getTree(TextGraph graph, String source) {
+        if (!graph.containsWord(source)) {
+            return null;
+        }
+        return cache.get(graph, source, word -> ShortestPathTree.build(graph, graph.getIndex(word)));
+    }
+    
+    /**
+     * 获取已经缓存的以单词为起点的最短路径树，未命中时不构建
+     * @param graph 图结构
+     * @param source 起点单词
+     * @return 最短路径树，如果尚未缓存则返回null
+     */
+    public ShortestPathTree getCachedTree(TextGraph graph, String source) {
+        return cache.getIfPresent(graph, source);
+    }
+    
+    /**
+     * 清空缓存，计数器保持不变
+     */
+    public void clear() {
+        cache.clear();
+    }
+    
+    /**
+     * 获取当前缓存条目数
+     * @return 条目数
+     */
+    public int size() {
+        return cache.size();
+    }
+    
+    /**
+     * 获取命中次数
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+    
+    /**
+     * 获取未命中次数
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+}
@@ -1,15 +1,29 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * 文本图结构类
- * 用于表示单词之间的关系图
+ * 用于表示单词之间的关系图。
+ * 可修改的图只能由一个线程使用；通过snapshot()得到的只读快照不会再变化，
+ * 可以在多个线程之间共享
  */
 public class TextGraph {
-    private Map<String, Integer> wordToIndex; // 单词到索引的映射
-    private List<String> indexToWord; // 索引到单词的映射
-    private int[][] adjacencyMatrix; // 邻接矩阵
+    private static final int BUFFER_SIZE = 8192; // 流式追加时的读取缓冲区大小
+    
+    private WordDictionary dictionary; // 单词词表
+    private CsrAdjacency adjacency; // CSR邻接结构（出边）
+    private CsrAdjacency reverseAdjacency; // 转置的CSR邻接结构（入边）
+    private LongIntHashMap pendingEdges; // 追加后尚未合并进CSR的边（起点<<32|终点）
+    private int lastIndex; // 最后一个单词的索引，-1表示图为空
     private int vertexCount; // 顶点数量
     private int edgeCount; // 边数量
+    private long version; // 版本号，每次修改图后递增
+    private boolean frozen; // 是否为只读快照
     
     /**
      * 构造函数，从文本创建图结构
@@ -17,72 +31,263 @@ public class TextGraph {
      */
     public TextGraph(String text) {
         // 初始化数据结构
-        wordToIndex = new HashMap<>();
-        indexToWord = new ArrayList<>();
+        dictionary = new WordDictionary();
+        pendingEdges = new LongIntHashMap();
         
-        // 处理文本
-        List<String> words = processText(text);
+        // 处理文本，单词直接转换为编号
+        int[] ids = processText(text);
         
         // 构建图
-        buildGraph(words);
+        buildGraph(ids);
+    }
+    
+    /**
+     * 构造函数，使用已经构建好的数据结构
+     * @param dictionary 单词词表
+     * @param adjacency CSR邻接结构（出边）
+     * @param reverseAdjacency 转置的CSR邻接结构（入边）
+     * @param edgeCount 边数量
+     * @param lastIndex 最后一个单词的索引，-1表示没有
+     */
+    TextGraph(WordDictionary dictionary, CsrAdjacency adjacency, CsrAdjacency reverseAdjacency,
+              int edgeCount, int lastIndex) {
+        this.dictionary = dictionary;
+        this.adjacency = adjacency;
+        this.reverseAdjacency = reverseAdjacency;
+        this.pendingEdges = new LongIntHashMap();
+        this.vertexCount = dictionary.size();
+        this.edgeCount = edgeCount;
+        this.lastIndex = lastIndex;
     }
     
     /**
-     * 处理文本，提取单词
+     * 处理文本，提取单词并加入词表
+     * 切分出的单词直接在词表中查找编号，已有单词不会创建字符串
      * @param text 输入文本
-     * @return 处理后的单词列表
+     * @return 单词编号序列
      */
-    private List<String> processText(String text) {
-        List<String> words = new ArrayList<>();
-        
-        // 将文本转换为小写
-        text = text.toLowerCase();
-        
-        // 替换标点符号为空格
-        text = text.replaceAll("[\\p{Punct}]", " ");
-        
-        // 分割文本为单词
-        String[] wordsArray = text.split("\\s+");
+    private int[] processText(String text) {
+        IntStream.Builder ids = IntStream.builder();
+        Tokenizer.TokenHandler handler = (chars, offset, length) -> ids.add(dictionary.add(chars, offset, length));
+        Tokenizer tokenizer = new Tokenizer();
+        tokenizer.scan(text, 0, text.length(), handler);
+        tokenizer.finish(handler);
+        return ids.build().toArray();
+    }
+    
+    /**
+     * 构建图结构
+     * @param ids 单词编号序列
+     */
+    private void buildGraph(int[] ids) {
+        vertexCount = dictionary.size();
         
-        // 过滤非字母字符
-        for (String word : wordsArray) {
-            word = word.replaceAll("[^a-z]", "");
-            if (!word.isEmpty()) {
-                words.add(word);
+        // 创建边：相邻单词构成一条边，重复出现的边累加权重
+        int pairCount = Math.max(ids.length - 1, 0);
+        int[] sources = Arrays.copyOf(ids, pairCount);
+        int[] dests = pairCount == 0 ? new int[0] : Arrays.copyOfRange(ids, 1, ids.length);
+        adjacency = CsrAdjacency.fromEdges(vertexCount, sources, dests, null, pairCount);
+        reverseAdjacency = CsrAdjacency.fromEdges(vertexCount, dests, sources, null, pairCount);
+        edgeCount = pairCount;
+        lastIndex = ids.length > 0 ? ids[ids.length - 1] : -1;
+    }
+    
+    /**
+     * 向图中追加一段文本，与上一次追加的最后一个单词之间也会生成边
+     * @param text 输入文本
+     */
+    public void appendText(String text) {
+        checkWritable();
+        appendIds(processText(text));
+    }
+    
+    /**
+     * 从字符流中读取文本并追加到图中
+     * 文本按固定大小的缓冲区逐段切分，单词直接转换为编号并生成边，不会把整段文本读入内存
+     * @param reader 字符流，由调用者负责关闭
+     * @throws IOException 读取失败，已经读到的单词仍会保留在图中
+     */
+    public void appendText(Reader reader) throws IOException {
+        checkWritable();
+        Tokenizer.TokenHandler handler = (chars, offset, length) -> appendId(dictionary.add(chars, offset, length));
+        Tokenizer tokenizer = new Tokenizer();
+        char[] buffer = new char[BUFFER_SIZE];
+        try {
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                tokenizer.scan(buffer, 0, count, handler);
             }
+            tokenizer.finish(handler);
+        } finally {
+            finishAppend();
         }
-        
-        return words;
     }
     
     /**
-     * 构建图结构
+     * 按UTF-8读取文件并追加到图中
+     * @param path 文件路径
+     * @throws IOException 读取失败
+     */
+    public void append(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            appendText(reader);
+        }
+    }
+    
+    /**
+     * 向图中追加已经处理好的单词序列
+     * 新的顶点和边先记录在增量中，耗时只与新增单词数有关；
+     * 增量在下一次查询邻接结构时一次性线性合并进CSR
      * @param words 单词列表
      */
-    private void buildGraph(List<String> words) {
-        // 创建顶点
+    public void appendTokens(List<String> words) {
+        checkWritable();
+        IntStream.Builder ids = IntStream.builder();
         for (String word : words) {
-            if (!wordToIndex.containsKey(word)) {
-                int index = indexToWord.size();
-                wordToIndex.put(word, index);
-                indexToWord.add(word);
+            if (!word.isEmpty()) {
+                ids.add(dictionary.add(word));
             }
         }
-        
-        vertexCount = indexToWord.size();
-        adjacencyMatrix = new int[vertexCount][vertexCount];
-        
-        // 创建边
-        for (int i = 0; i < words.size() - 1; i++) {
-            String word1 = words.get(i);
-            String word2 = words.get(i + 1);
-            
-            int index1 = wordToIndex.get(word1);
-            int index2 = wordToIndex.get(word2);
-            
-            adjacencyMatrix[index1][index2]++;
+        appendIds(ids.build().toArray());
+    }
+    
+    /**
+     * 检查图是否可以修改
+     */
+    private void checkWritable() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot append to a read-only graph snapshot");
+        }
+    }
+    
+    /**
+     * 追加单词编号序列，生成相邻单词之间的边
+     * @param ids 单词编号序列
+     */
+    private void appendIds(int[] ids) {
+        for (int index : ids) {
+            appendId(index);
+        }
+        finishAppend();
+    }
+    
+    /**
+     * 追加一个单词编号，生成与上一个单词之间的边
+     * @param index 单词编号
+     */
+    private void appendId(int index) {
+        if (lastIndex >= 0) {
+            pendingEdges.add(((long) lastIndex << 32) | index, 1);
             edgeCount++;
         }
+        lastIndex = index;
+    }
+    
+    /**
+     * 结束一次追加，更新顶点数量和版本号
+     */
+    private void finishAppend() {
+        vertexCount = dictionary.size();
+        version++;
+    }
+    
+    /**
+     * 生成当前图的只读快照
+     * 快照与当前图共享不可变的CSR数组，只复制单词词表，之后对当前图的追加不会影响快照。
+     * 快照本身调用此方法时直接返回自身
+     * @return 只读快照
+     */
+    public TextGraph snapshot() {
+        if (frozen) {
+            return this;
+        }
+        mergePendingEdges();
+        return new TextGraph(new WordDictionary(dictionary), adjacency, reverseAdjacency, edgeCount, lastIndex)
+                .freeze(version);
+    }
+    
+    /**
+     * 生成位于堆外内存的只读快照
+     * 单词词表和两个CSR结构都被复制到直接内存，垃圾回收时不需要扫描或移动这些数据
+     * @return 堆外的只读快照
+     */
+    public TextGraph toOffHeap() {
+        mergePendingEdges();
+        return new TextGraph(dictionary.toOffHeap(), adjacency.toOffHeap(), reverseAdjacency.toOffHeap(),
+                             edgeCount, lastIndex).freeze(version);
+    }
+    
+    /**
+     * 把刚构造的图标记为只读快照，直接使用构造时传入的词表和邻接结构，不做复制
+     * @param version 版本号
+     * @return 当前图
+     */
+    TextGraph freeze(long version) {
+        this.version = version;
+        this.frozen = true;
+        return this;
+    }
+    
+    /**
+     * 复制一份可修改的图，与当前图共享不可变的CSR数组，只复制单词词表和未合并的边
+     * @return 可修改的图
+     */
+    public TextGraph mutableCopy() {
+        TextGraph copy = new TextGraph(new WordDictionary(dictionary), adjacency, reverseAdjacency,
+                                       edgeCount, lastIndex);
+        copy.pendingEdges.addAll(pendingEdges);
+        copy.vertexCount = vertexCount;
+        copy.version = version;
+        return copy;
+    }
+    
+    /**
+     * 判断图是否为只读快照
+     * @return 是否为只读快照
+     */
+    public boolean isSnapshot() {
+        return frozen;
+    }
+    
+    /**
+     * 获取最新的邻接结构，必要时先合并追加的边
+     * @return CSR邻接结构
+     */
+    private CsrAdjacency adjacency() {
+        mergePendingEdges();
+        return adjacency;
+    }
+    
+    /**
+     * 获取最新的转置邻接结构，必要时先合并追加的边
+     * @return 转置的CSR邻接结构
+     */
+    private CsrAdjacency reverseAdjacency() {
+        mergePendingEdges();
+        return reverseAdjacency;
+    }
+    
+    /**
+     * 将追加的边同时合并进正向和转置的邻接结构
+     */
+    private void mergePendingEdges() {
+        if (!pendingEdges.isEmpty() || adjacency.vertexCount() != vertexCount) {
+            int size = pendingEdges.size();
+            int[] sources = new int[size];
+            int[] dests = new int[size];
+            int[] weights = new int[size];
+            int i = 0;
+            for (int slot = pendingEdges.nextSlot(0); slot >= 0; slot = pendingEdges.nextSlot(slot + 1)) {
+                long key = pendingEdges.keyAt(slot);
+                sources[i] = (int) (key >>> 32);
+                dests[i] = (int) key;
+                weights[i] = pendingEdges.valueAt(slot);
+                i++;
+            }
+            adjacency = adjacency.merge(vertexCount, sources, dests, weights, size);
+            reverseAdjacency = reverseAdjacency.merge(vertexCount, dests, sources, weights, size);
+            pendingEdges.clear();
+        }
     }
     
     /**
@@ -101,6 +306,58 @@ public class TextGraph {
         return edgeCount;
     }
     
+    /**
+     * 将图保存为二进制快照文件
+     * @param path 文件路径
+     * @throws IOException 写入失败
+     */
+    public void save(Path path) throws IOException {
+        mergePendingEdges();
+        TextGraphFile.write(path, dictionary, adjacency, reverseAdjacency, edgeCount, lastIndex);
+    }
+    
+    /**
+     * 从二进制快照文件加载图，不需要重新读取和切分原始文本
+     * @param path 文件路径
+     * @return 文本图
+     * @throws IOException 读取失败或文件格式错误
+     */
+    public static TextGraph load(Path path) throws IOException {
+        return TextGraphFile.read(path, false, true);
+    }
+    
+    /**
+     * 从二进制快照文件加载图，数据通过内存映射留在堆外，不占用Java堆
+     * 得到的图为只读快照，查询接口与堆内的图相同。加载前完整校验文件
+     * @param path 文件路径
+     * @return 只读快照
+     * @throws IOException 读取失败或文件格式错误
+     */
+    public static TextGraph loadOffHeap(Path path) throws IOException {
+        return loadOffHeap(path, true);
+    }
+    
+    /**
+     * 从二进制快照文件加载图，数据通过内存映射留在堆外
+     * 不做完整校验时只检查文件头和词表，不计算校验值也不扫描邻接结构，
+     * 加载时间与邻接结构的大小无关，适用于可信的文件
+     * @param path 文件路径
+     * @param verify 是否计算校验值并检查邻接结构
+     * @return 只读快照
+     * @throws IOException 读取失败或文件格式错误
+     */
+    public static TextGraph loadOffHeap(Path path, boolean verify) throws IOException {
+        return TextGraphFile.read(path, true, verify);
+    }
+    
+    /**
+     * 获取图的版本号，图被修改后版本号会变化，可用于判断缓存是否失效
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+    
     /**
      * 获取单词的所有后继单词
      * @param word 单词
@@ -109,15 +366,14 @@ public class TextGraph {
     public List<String> getSuccessors(String word) {
         List<String> successors = new ArrayList<>();
         
-        if (!wordToIndex.containsKey(word)) {
+        int index = getIndex(word);
+        if (index < 0) {
             return successors;
         }
         
-        int index = wordToIndex.get(word);
-        for (int i = 0; i < vertexCount; i++) {
-            if (adjacencyMatrix[index][i] > 0) {
-                successors.add(indexToWord.get(i));
-            }
+        CsrAdjacency adjacency = adjacency();
+        for (int e = adjacency.start(index); e < adjacency.end(index); e++) {
+            successors.add(dictionary.get(adjacency.target(e)));
         }
         
         return successors;
@@ -131,15 +387,14 @@ public class TextGraph {
     public List<String> getPredecessors(String word) {
         List<String> predecessors = new ArrayList<>();
         
-        if (!wordToIndex.containsKey(word)) {
+        int index = getIndex(word);
+        if (index < 0) {
             return predecessors;
         }
         
-        int index = wordToIndex.get(word);
-        for (int i = 0; i < vertexCount; i++) {
-            if (adjacencyMatrix[i][index] > 0) {
-                predecessors.add(indexToWord.get(i));
-            }
+        CsrAdjacency reverse = reverseAdjacency();
+        for (int e = reverse.start(index); e < reverse.end(index); e++) {
+            predecessors.add(dictionary.get(reverse.target(e)));
         }
         
         return predecessors;
@@ -154,28 +409,47 @@ public class TextGraph {
     public List<String> getBridgeWords(String word1, String word2) {
         List<String> bridgeWords = new ArrayList<>();
         
-        if (!wordToIndex.containsKey(word1) || !wordToIndex.containsKey(word2)) {
+        int index1 = getIndex(word1);
+        int index2 = getIndex(word2);
+        if (index1 < 0 || index2 < 0) {
             return bridgeWords;
         }
         
-        int index1 = wordToIndex.get(word1);
-        int index2 = wordToIndex.get(word2);
-        
-        for (int i = 0; i < vertexCount; i++) {
-            if (adjacencyMatrix[index1][i] > 0 && adjacencyMatrix[i][index2] > 0) {
-                bridgeWords.add(indexToWord.get(i));
-            }
+        // 桥接词即word1的后继与word2的前驱的交集，两者都按编号有序
+        CsrAdjacency adjacency = adjacency();
+        CsrAdjacency reverse = reverseAdjacency();
+        int[] middles = new int[Math.min(adjacency.degree(index1), reverse.degree(index2))];
+        int count = CsrAdjacency.intersect(adjacency, index1, reverse, index2, middles);
+        for (int i = 0; i < count; i++) {
+            bridgeWords.add(dictionary.get(middles[i]));
         }
         
         return bridgeWords;
     }
     
+    /**
+     * 获取CSR邻接结构
+     * @return 邻接结构
+     */
+    public CsrAdjacency getAdjacency() {
+        return adjacency();
+    }
+    
+    /**
+     * 获取转置的CSR邻接结构，每个顶点的区间存放其入边的起点
+     * @return 转置的邻接结构
+     */
+    public CsrAdjacency getReverseAdjacency() {
+        return reverseAdjacency();
+    }
+    
     /**
      * 获取邻接矩阵
+     * 每次调用都会按需生成稠密副本，占用V²内存，仅适用于小图
      * @return 邻接矩阵
      */
     public int[][] getAdjacencyMatrix() {
-        return adjacencyMatrix;
+        return adjacency().toDenseMatrix();
     }
     
     /**
@@ -183,7 +457,25 @@ public class TextGraph {
      * @return 单词列表
      */
     public List<String> getAllWords() {
-        return new ArrayList<>(indexToWord);
+        return dictionary.toList();
+    }
+    
+    /**
+     * 获取单词的索引
+     * @param word 单词
+     * @return 索引，如果不存在则返回-1
+     */
+    public int getIndex(String word) {
+        return word == null ? -1 : dictionary.find(word);
+    }
+    
+    /**
+     * 获取索引对应的单词
+     * @param index 索引
+     * @return 单词
+     */
+    public String getWord(int index) {
+        return dictionary.get(index);
     }
     
     /**
@@ -192,7 +484,7 @@ public class TextGraph {
      * @return 是否存在
      */
     public boolean containsWord(String word) {
-        return wordToIndex.containsKey(word);
+        return getIndex(word) >= 0;
     }
     
     /**
@@ -202,14 +494,13 @@ public class TextGraph {
      * @return 边权重，如果不存在则返回0
      */
     public int getEdgeWeight(String word1, String word2) {
-        if (!wordToIndex.containsKey(word1) || !wordToIndex.containsKey(word2)) {
+        int index1 = getIndex(word1);
+        int index2 = getIndex(word2);
+        if (index1 < 0 || index2 < 0) {
             return 0;
         }
         
-        int index1 = wordToIndex.get(word1);
-        int index2 = wordToIndex.get(word2);
-        
-        return adjacencyMatrix[index1][index2];
+        return adjacency().weight(index1, index2);
     }
 }
 
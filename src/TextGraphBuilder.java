@@ -0,0 +1,521 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongPredicate;
+
+/**
+ * 文本图构建器
+ * 逐字符扫描输入并在识别出单词时立即生成边，不需要把整个语料读入内存，
+ * 峰值内存只与词表大小和不同边的数量有关。
+ * 可以设置最小词频和词表上限，构建时把低频单词合并为一个<unk>顶点或直接丢弃
+ */
+public class TextGraphBuilder {
+    /**
+     * 低频单词的处理方式
+     */
+    public enum RareWords {
+        UNKNOWN, // 所有被裁剪的单词合并为一个<unk>顶点，保留原有的相邻关系
+        DROP // 丢弃被裁剪的单词及其所有边，前后两个单词之间不会因此相连
+    }
+    
+    public static final String UNKNOWN_WORD = "<unk>"; // 被裁剪单词合并后的顶点，切分器不会产生该单词
+    
+    private static final int BUFFER_SIZE = 8192; // 读取缓冲区大小
+    private static final long MAP_WINDOW = 1L << 28; // 每次映射的文件窗口大小
+    private static final int MIN_CHUNK_SIZE = 1 << 20; // 并行构建时每个分块的最小大小
+    
+    private final WordDictionary dictionary; // 单词词表
+    private final LongIntHashMap edgeWeights; // 边（起点<<32|终点）到权重的映射
+    private final Tokenizer tokenizer; // 单词切分器
+    private final Tokenizer.TokenHandler handler; // 把切分出的单词加入图中的回调
+    private int firstIndex; // 第一个单词的索引，-1表示没有
+    private int previousIndex; // 上一个单词的索引，-1表示没有
+    private int edgeCount; // 边数量
+    private int[] wordCounts; // 每个单词出现的次数
+    private int minWordCount; // 保留单词的最小出现次数
+    private int maxVocabulary; // 保留单词的最大数量
+    private RareWords rareWords; // 低频单词的处理方式
+    
+    /**
+     * 构造函数，创建空的构建器，使用默认的切分规则
+     */
+    public TextGraphBuilder() {
+        this(Tokenizer.ASCII_LOWER_CASE);
+    }
+    
+    /**
+     * 构造函数，创建空的构建器
+     * @param rule 单词切分规则
+     */
+    public TextGraphBuilder(Tokenizer.Rule rule) {
+        dictionary = new WordDictionary();
+        edgeWeights = new LongIntHashMap();
+        tokenizer = new Tokenizer(rule);
+        handler = (chars, offset, length) -> {
+            int index = dictionary.add(chars, offset, length);
+            countWord(index, 1);
+            addWord(index);
+        };
+        firstIndex = -1;
+        previousIndex = -1;
+        wordCounts = new int[64];
+        minWordCount = 1;
+        maxVocabulary = Integer.MAX_VALUE;
+        rareWords = RareWords.UNKNOWN;
+    }
+    
+    /**
+     * 设置保留单词的最小出现次数，出现次数更少的单词在构建时被裁剪
+     * @param minWordCount 最小出现次数，默认为1即不裁剪
+     * @return 当前构建器
+     */
+    public TextGraphBuilder minWordCount(int minWordCount) {
+        if (minWordCount < 1) {
+            throw new IllegalArgumentException("minWordCount must be positive: " + minWordCount);
+        }
+        this.minWordCount = minWordCount;
+        return this;
+    }
+    
+    /**
+     * 设置保留单词的最大数量，超出时只保留出现次数最多的单词，次数相同时保留先出现的单词。
+     * 合并后的<unk>顶点不计入该数量
+     * @param maxVocabulary 最大单词数量，默认不限制
+     * @return 当前构建器
+     */
+    public TextGraphBuilder maxVocabulary(int maxVocabulary) {
+        if (maxVocabulary < 1) {
+            throw new IllegalArgumentException("maxVocabulary must be positive: " + maxVocabulary);
+        }
+        this.maxVocabulary = maxVocabulary;
+        return this;
+    }
+    
+    /**
+     * 设置低频单词的处理方式
+     * @param rareWords 处理方式，默认为合并为<unk>顶点
+     * @return 当前构建器
+     */
+    public TextGraphBuilder rareWords(RareWords rareWords) {
+        this.rareWords = Objects.requireNonNull(rareWords);
+        return this;
+    }
+    
+    /**
+     * 追加一段文本
+     * 单词可以跨越多次调用，和把所有文本拼接后一次性追加的结果相同
+     * @param text 文本片段
+     * @return 当前构建器
+     */
+    public TextGraphBuilder append(CharSequence text) {
+        return append(text, 0, text.length());
+    }
+    
+    /**
+     * 追加文本的一个区间
+     * @param text 文本
+     * @param from 起始位置（包含）
+     * @param to 结束位置（不包含）
+     * @return 当前构建器
+     */
+    private TextGraphBuilder append(CharSequence text, int from, int to) {
+        tokenizer.scan(text, from, to, handler);
+        return this;
+    }
+    
+    /**
+     * 使用公共ForkJoinPool并行追加一段文本
+     * @param text 文本
+     * @return 当前构建器
+     */
+    public TextGraphBuilder appendParallel(CharSequence text) {
+        return appendParallel(text, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 并行追加一段文本
+     * 文本在空白处切分为多个分块，各分块使用独立的词表并行统计，
+     * 再按顺序合并到全局编号空间，结果与顺序追加完全相同。
+     * 追加前尚未结束的单词会被视为已经结束
+     * @param text 文本
+     * @param pool 执行分块任务的线程池
+     * @return 当前构建器
+     */
+    public TextGraphBuilder appendParallel(CharSequence text, ForkJoinPool pool) {
+        flushWord();
+        
+        long[] bounds = splitChunks(text.length(), pool.getParallelism(), Integer.MAX_VALUE,
+                                    position -> Tokenizer.isWhitespace(text.charAt((int) position)));
+        List<ForkJoinTask<TextGraphBuilder>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int from = (int) bounds[i];
+            int to = (int) bounds[i + 1];
+            tasks.add(pool.submit(() -> newChunk().append(text, from, to).finishChunk()));
+        }
+        for (ForkJoinTask<TextGraphBuilder> task : tasks) {
+            merge(task.join());
+        }
+        return this;
+    }
+    
+    /**
+     * 从字符流中读取全部文本
+     * @param reader 字符流，由调用者负责关闭
+     * @return 当前构建器
+     * @throws IOException 读取失败
+     */
+    public TextGraphBuilder read(Reader reader) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            tokenizer.scan(buffer, 0, count, handler);
+        }
+        return this;
+    }
+    
+    /**
+     * 从字节流中按UTF-8读取全部文本
+     * @param in 字节流，由调用者负责关闭
+     * @return 当前构建器
+     * @throws IOException 读取失败
+     */
+    public TextGraphBuilder read(InputStream in) throws IOException {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 按UTF-8读取文件的全部文本
+     * @param path 文件路径
+     * @return 当前构建器
+     * @throws IOException 读取失败
+     */
+    public TextGraphBuilder read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+    
+    /**
+     * 通过内存映射读取文件，直接在字节上扫描ASCII字母
+     * 已有单词的查找不会创建对象，非ASCII字节一律忽略。
+     * 切分规则保留非ASCII字母时改为按UTF-8解码读取
+     * @param path 文件路径
+     * @return 当前构建器
+     * @throws IOException 读取失败
+     */
+    public TextGraphBuilder readMapped(Path path) throws IOException {
+        if (!tokenizer.isAsciiRule()) {
+            return read(path);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            scanMapped(channel, 0, channel.size());
+        }
+        return this;
+    }
+    
+    /**
+     * 使用公共ForkJoinPool并行地通过内存映射读取文件
+     * @param path 文件路径
+     * @return 当前构建器
+     * @throws IOException 读取失败
+     */
+    public TextGraphBuilder readMappedParallel(Path path) throws IOException {
+        return readMappedParallel(path, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * 并行地通过内存映射读取文件
+     * 文件在ASCII空白处切分为多个分块，各分块使用独立的词表并行统计，
+     * 再按顺序合并到全局编号空间，结果与readMapped完全相同。
+     * 读取前尚未结束的单词会被视为已经结束。
+     * 切分规则保留非ASCII字母时改为按UTF-8解码顺序读取
+     * @param path 文件路径
+     * @param pool 执行分块任务的线程池
+     * @return 当前构建器
+     * @throws IOException 读取失败
+     */
+    public TextGraphBuilder readMappedParallel(Path path, ForkJoinPool pool) throws IOException {
+        if (!tokenizer.isAsciiRule()) {
+            return read(path);
+        }
+        flushWord();
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer probe = ByteBuffer.allocate(1);
+            long[] bounds;
+            try {
+                bounds = splitChunks(channel.size(), pool.getParallelism(), MAP_WINDOW, position -> {
+                    try {
+                        probe.clear();
+                        channel.read(probe, position);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    int b = probe.get(0);
+                    return b >= 0 && Tokenizer.isWhitespace((char) b);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            List<ForkJoinTask<TextGraphBuilder>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                tasks.add(pool.submit(() -> {
+                    TextGraphBuilder chunk = newChunk();
+                    chunk.scanMapped(channel, from, to);
+                    return chunk.finishChunk();
+                }));
+            }
+            for (ForkJoinTask<TextGraphBuilder> task : tasks) {
+                merge(task.join());
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * 扫描文件的一个区间，按窗口分段映射
+     * @param channel 文件通道
+     * @param from 起始位置（包含）
+     * @param to 结束位置（不包含）
+     * @throws IOException 映射失败
+     */
+    private void scanMapped(FileChannel channel, long from, long to) throws IOException {
+        for (long position = from; position < to; position += MAP_WINDOW) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                                  Math.min(MAP_WINDOW, to - position));
+            tokenizer.scanAscii(buffer, 0, buffer.limit(), handler);
+        }
+    }
+    
+    /**
+     * 将输入切分为若干分块，除最后一块外每块都在空白字符处结束
+     * @param length 输入长度
+     * @param parallelism 并行度
+     * @param maxChunk 分块的最大长度
+     * @param isWhitespace 判断位置上的字符是否为空白
+     * @return 分块边界数组，相邻两个元素构成一个分块
+     */
+    private static long[] splitChunks(long length, int parallelism, long maxChunk,
+                                      LongPredicate isWhitespace) {
+        long chunk = Math.max(MIN_CHUNK_SIZE, length / (parallelism * 4L) + 1);
+        chunk = Math.min(chunk, maxChunk / 2);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long position = 0;
+        while (position < length) {
+            long end = Math.min(position + chunk, length);
+            while (end < length && !isWhitespace.test(end)) {
+                end++;
+            }
+            bounds.add(end);
+            position = end;
+        }
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+    
+    /**
+     * 创建与当前构建器使用相同切分规则的分块构建器
+     * @return 分块构建器
+     */
+    private TextGraphBuilder newChunk() {
+        return new TextGraphBuilder(tokenizer.getRule());
+    }
+    
+    /**
+     * 结束分块的扫描
+     * @return 当前构建器
+     */
+    private TextGraphBuilder finishChunk() {
+        flushWord();
+        return this;
+    }
+    
+    /**
+     * 将一个分块的统计结果按顺序合并进来
+     * 分块内的编号按首次出现顺序映射到全局编号，并补上跨越分块边界的边
+     * @param chunk 分块构建器
+     */
+    private void merge(TextGraphBuilder chunk) {
+        if (chunk.firstIndex < 0) {
+            return;
+        }
+        
+        int[] globalIndex = new int[chunk.dictionary.size()];
+        for (int i = 0; i < globalIndex.length; i++) {
+            globalIndex[i] = dictionary.add(chunk.dictionary, i);
+        }
+        
+        for (int i = 0; i < globalIndex.length; i++) {
+            countWord(globalIndex[i], chunk.wordCounts[i]);
+        }
+        
+        // 跨越分块边界的边
+        addWord(globalIndex[chunk.firstIndex]);
+        
+        LongIntHashMap chunkEdges = chunk.edgeWeights;
+        for (int slot = chunkEdges.nextSlot(0); slot >= 0; slot = chunkEdges.nextSlot(slot + 1)) {
+            long key = chunkEdges.keyAt(slot);
+            int source = globalIndex[(int) (key >>> 32)];
+            int dest = globalIndex[(int) key];
+            edgeWeights.add(((long) source << 32) | dest, chunkEdges.valueAt(slot));
+        }
+        edgeCount += chunk.edgeCount;
+        previousIndex = globalIndex[chunk.previousIndex];
+    }
+    
+    /**
+     * 结束当前单词，将其加入图中
+     * 已有单词的查找直接在词表上按字符比较，不会分配内存
+     */
+    private void flushWord() {
+        tokenizer.finish(handler);
+    }
+    
+    /**
+     * 累加单词的出现次数
+     * @param index 单词索引
+     * @param count 增加的次数
+     */
+    private void countWord(int index, int count) {
+        if (index >= wordCounts.length) {
+            wordCounts = Arrays.copyOf(wordCounts, Math.max(wordCounts.length * 2, index + 1));
+        }
+        wordCounts[index] += count;
+    }
+    
+    /**
+     * 生成与上一个单词之间的边
+     * @param index 单词索引
+     */
+    private void addWord(int index) {
+        if (firstIndex < 0) {
+            firstIndex = index;
+        }
+        if (previousIndex >= 0) {
+            edgeWeights.add(((long) previousIndex << 32) | index, 1);
+            edgeCount++;
+        }
+        previousIndex = index;
+    }
+    
+    /**
+     * 构建图结构
+     * 尚未遇到分隔符的最后一个单词会被视为已经结束。
+     * 设置了最小词频或词表上限时，先根据扫描过程中统计的词频选出保留的单词，
+     * 再把边表重新映射到裁剪后的编号空间，不需要再次读取文本
+     * @return 文本图
+     */
+    public TextGraph build() {
+        flushWord();
+        
+        boolean[] keep = selectVocabulary();
+        if (keep == null) {
+            return toGraph(new WordDictionary(dictionary), edgeWeights, edgeCount, previousIndex);
+        }
+        
+        // 保留的单词按原有顺序重新编号，被裁剪的单词映射到<unk>或-1
+        WordDictionary pruned = new WordDictionary();
+        int[] remap = new int[dictionary.size()];
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = keep[i] ? pruned.add(dictionary, i) : -1;
+        }
+        if (rareWords == RareWords.UNKNOWN) {
+            int unknown = pruned.add(UNKNOWN_WORD);
+            for (int i = 0; i < remap.length; i++) {
+                if (remap[i] < 0) {
+                    remap[i] = unknown;
+                }
+            }
+        }
+        
+        LongIntHashMap prunedEdges = new LongIntHashMap(edgeWeights.size());
+        int prunedEdgeCount = 0;
+        for (int slot = edgeWeights.nextSlot(0); slot >= 0; slot = edgeWeights.nextSlot(slot + 1)) {
+            long key = edgeWeights.keyAt(slot);
+            int source = remap[(int) (key >>> 32)];
+            int dest = remap[(int) key];
+            if (source >= 0 && dest >= 0) {
+                int weight = edgeWeights.valueAt(slot);
+                prunedEdges.add(((long) source << 32) | dest, weight);
+                prunedEdgeCount += weight;
+            }
+        }
+        int lastIndex = previousIndex >= 0 ? remap[previousIndex] : -1;
+        return toGraph(pruned, prunedEdges, prunedEdgeCount, lastIndex);
+    }
+    
+    /**
+     * 根据词频选出保留的单词
+     * @return 每个单词是否保留，全部保留时返回null
+     */
+    private boolean[] selectVocabulary() {
+        int size = dictionary.size();
+        boolean[] keep = new boolean[size];
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (wordCounts[i] >= minWordCount) {
+                keep[i] = true;
+                kept++;
+            }
+        }
+        
+        if (kept > maxVocabulary) {
+            // 按（次数，-索引）升序排列，去掉排在前面的单词
+            long[] ranked = new long[kept];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (keep[i]) {
+                    ranked[n++] = ((long) wordCounts[i] << 32) | (Integer.MAX_VALUE - i);
+                }
+            }
+            Arrays.sort(ranked);
+            for (int j = 0; j < kept - maxVocabulary; j++) {
+                keep[Integer.MAX_VALUE - (int) ranked[j]] = false;
+            }
+            kept = maxVocabulary;
+        }
+        return kept == size ? null : keep;
+    }
+    
+    /**
+     * 由词表和边表生成文本图
+     * @param words 单词词表
+     * @param edges 边（起点<<32|终点）到权重的映射
+     * @param totalEdges 边数量
+     * @param lastIndex 最后一个单词的索引，-1表示没有
+     * @return 文本图
+     */
+    private static TextGraph toGraph(WordDictionary words, LongIntHashMap edges, int totalEdges, int lastIndex) {
+        int size = edges.size();
+        int[] sources = new int[size];
+        int[] dests = new int[size];
+        int[] weights = new int[size];
+        int i = 0;
+        for (int slot = edges.nextSlot(0); slot >= 0; slot = edges.nextSlot(slot + 1)) {
+            long key = edges.keyAt(slot);
+            sources[i] = (int) (key >>> 32);
+            dests[i] = (int) key;
+            weights[i] = edges.valueAt(slot);
+            i++;
+        }
+        
+        int vertexCount = words.size();
+        CsrAdjacency adjacency = CsrAdjacency.fromEdges(vertexCount, sources, dests, weights, size);
+        CsrAdjacency reverseAdjacency = CsrAdjacency.fromEdges(vertexCount, dests, sources, weights, size);
+        return new TextGraph(words, adjacency, reverseAdjacency, totalEdges, lastIndex);
+    }
+}
@@ -0,0 +1,356 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 文本图二进制快照格式
+ * 所有数值均为小端序，依次为：
+ * 文件头（魔数、格式版本、顶点数、字符数、不同边数、边数量、最后单词索引、保留字段），
+ * 词表偏移、词表字符（补齐到4字节）、正向CSR的偏移/目标/权重、转置CSR的偏移/目标/权重，
+ * 最后是前面所有字节的CRC32校验值（8字节）
+ */
+final class TextGraphFile {
+    private static final int MAGIC = 0x48504754; // 小端序下为 "TGPH"
+    private static final int FORMAT_VERSION = 1; // 格式版本
+    private static final int HEADER_SIZE = 32; // 文件头字节数
+    private static final int CHECKSUM_SIZE = 8; // 校验值字节数
+    private static final int WINDOW = 1 << 26; // 每次映射或写出的字节数
+    
+    private TextGraphFile() {
+    }
+    
+    /**
+     * 将图写入快照文件
+     * 先写入同一目录下的临时文件，完成后再替换目标文件。
+     * 图本身可能是从目标文件映射加载的，直接截断目标文件会使正在读取的映射失效
+     * @param path 文件路径
+     * @param dictionary 单词词表
+     * @param adjacency 正向邻接结构
+     * @param reverseAdjacency 转置邻接结构
+     * @param edgeCount 边数量
+     * @param lastIndex 最后一个单词的索引
+     * @throws IOException 写入失败
+     */
+    static void write(Path path, WordDictionary dictionary, CsrAdjacency adjacency,
+                      CsrAdjacency reverseAdjacency, int edgeCount, int lastIndex) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temp, dictionary, adjacency, reverseAdjacency, edgeCount, lastIndex);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+    
+    /**
+     * 把快照内容写入新创建的文件
+     * @param path 文件路径
+     * @param dictionary 单词词表
+     * @param adjacency 正向邻接结构
+     * @param reverseAdjacency 转置邻接结构
+     * @param edgeCount 边数量
+     * @param lastIndex 最后一个单词的索引
+     * @throws IOException 写入失败
+     */
+    private static void writeTo(Path path, WordDictionary dictionary, CsrAdjacency adjacency,
+                                CsrAdjacency reverseAdjacency, int edgeCount, int lastIndex) throws IOException {
+        int vertexCount = dictionary.size();
+        int arenaSize = dictionary.arenaSize();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(vertexCount);
+            out.putInt(arenaSize);
+            out.putInt(adjacency.edgeCount());
+            out.putInt(edgeCount);
+            out.putInt(lastIndex);
+            out.putInt(0);
+            
+            out.putInts(dictionary.offsets(), vertexCount + 1);
+            out.putChars(dictionary.arena(), arenaSize);
+            if ((arenaSize & 1) != 0) {
+                out.putChars(CharBuffer.allocate(1), 1);
+            }
+            for (CsrAdjacency csr : new CsrAdjacency[] {adjacency, reverseAdjacency}) {
+                out.putInts(csr.offsets(), vertexCount + 1);
+                out.putInts(csr.targets(), csr.edgeCount());
+                out.putInts(csr.weights(), csr.edgeCount());
+            }
+            out.finish();
+            channel.force(true);
+        }
+    }
+    
+    /**
+     * 从快照文件读取图
+     * 文件通过内存映射读取，总是检查格式版本、长度、文件头中的索引和词表偏移。
+     * 需要完整校验时还会计算CRC32，并检查两个CSR的偏移单调、每行目标有序且在范围内、权重为正，
+     * 代价与文件大小成正比。
+     * 读入堆内时整段复制各个数组；留在堆外时直接使用映射的文件区间，不做复制，
+     * 得到的图为只读快照
+     * @param path 文件路径
+     * @param offHeap 是否把数据留在堆外
+     * @param verify 是否进行完整校验
+     * @return 文本图
+     * @throws IOException 读取失败或文件格式错误
+     */
+    static TextGraph read(Path path, boolean offHeap, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + CHECKSUM_SIZE) {
+                throw new IOException("Not a text graph snapshot: " + path);
+            }
+            
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a text graph snapshot: " + path);
+            }
+            int formatVersion = header.getInt(4);
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + formatVersion + ": " + path);
+            }
+            int vertexCount = header.getInt(8);
+            int arenaSize = header.getInt(12);
+            int distinctEdges = header.getInt(16);
+            int edgeCount = header.getInt(20);
+            int lastIndex = header.getInt(24);
+            
+            long paddedArena = (arenaSize + 1L) & ~1L;
+            long expected = HEADER_SIZE + 4L * (vertexCount + 1) + 2L * paddedArena
+                            + 2 * 4L * ((vertexCount + 1) + 2L * distinctEdges) + CHECKSUM_SIZE;
+            if (vertexCount < 0 || arenaSize < 0 || distinctEdges < 0 || size != expected
+                    || lastIndex < -1 || lastIndex >= vertexCount) {
+                throw new IOException("Truncated or corrupt snapshot: " + path);
+            }
+            
+            if (verify) {
+                CRC32 crc = new CRC32();
+                for (long position = 0; position < size - CHECKSUM_SIZE; position += WINDOW) {
+                    crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                           Math.min(WINDOW, size - CHECKSUM_SIZE - position)));
+                }
+                long stored = channel.map(FileChannel.MapMode.READ_ONLY, size - CHECKSUM_SIZE, CHECKSUM_SIZE)
+                                     .order(ByteOrder.LITTLE_ENDIAN).getLong(0);
+                if (stored != crc.getValue()) {
+                    throw new IOException("Snapshot checksum mismatch: " + path);
+                }
+            }
+            
+            // 词表在加载时总要逐个单词计算哈希，偏移的检查不会增加额外的页面访问
+            long position = HEADER_SIZE;
+            IntBuffer dictionaryOffsets = readInts(channel, position, vertexCount + 1, offHeap);
+            position += 4L * (vertexCount + 1);
+            if (!isMonotonic(dictionaryOffsets, vertexCount, arenaSize)) {
+                throw new IOException("Corrupt dictionary section in snapshot: " + path);
+            }
+            CharBuffer arena = readChars(channel, position, arenaSize, offHeap);
+            position += 2L * paddedArena;
+            CsrAdjacency[] csr = new CsrAdjacency[2];
+            for (int i = 0; i < csr.length; i++) {
+                IntBuffer offsets = readInts(channel, position, vertexCount + 1, offHeap);
+                position += 4L * (vertexCount + 1);
+                IntBuffer targets = readInts(channel, position, distinctEdges, offHeap);
+                position += 4L * distinctEdges;
+                IntBuffer weights = readInts(channel, position, distinctEdges, offHeap);
+                position += 4L * distinctEdges;
+                if (offsets.get(0) != 0 || offsets.get(vertexCount) != distinctEdges
+                        || (verify && !isValidCsr(offsets, targets, weights, vertexCount, distinctEdges))) {
+                    throw new IOException("Corrupt adjacency section in snapshot: " + path);
+                }
+                csr[i] = new CsrAdjacency(vertexCount, offsets, targets, weights);
+            }
+            
+            TextGraph graph = new TextGraph(new WordDictionary(arena, dictionaryOffsets), csr[0], csr[1],
+                                            edgeCount, lastIndex);
+            // 堆外加载时直接冻结，词表和邻接结构都留在映射的文件区间中
+            return offHeap ? graph.freeze(graph.getVersion()) : graph;
+        }
+    }
+    
+    /**
+     * 检查偏移序列从0开始、单调不减并以给定的值结束
+     * @param offsets 偏移序列，长度为count+1
+     * @param count 区间数
+     * @param end 最后一个偏移应有的值
+     * @return 是否有效
+     */
+    private static boolean isMonotonic(IntBuffer offsets, int count, int end) {
+        if (offsets.get(0) != 0 || offsets.get(count) != end) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (offsets.get(i) > offsets.get(i + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 检查CSR结构：偏移单调，每行的目标严格递增且在顶点范围内，权重为正
+     * @param offsets 偏移
+     * @param targets 目标顶点编号
+     * @param weights 边权重
+     * @param vertexCount 顶点数量
+     * @param edgeCount 不同边的数量
+     * @return 是否有效
+     */
+    private static boolean isValidCsr(IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+                                      int vertexCount, int edgeCount) {
+        if (!isMonotonic(offsets, vertexCount, edgeCount)) {
+            return false;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            int previous = -1;
+            for (int e = offsets.get(v), end = offsets.get(v + 1); e < end; e++) {
+                int target = targets.get(e);
+                if (target <= previous || target >= vertexCount || weights.get(e) <= 0) {
+                    return false;
+                }
+                previous = target;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 读取文件区间中的int序列
+     * @param channel 文件通道
+     * @param position 起始位置
+     * @param count 元素个数
+     * @param offHeap 是否直接使用映射的文件区间
+     * @return int存储
+     * @throws IOException 映射失败
+     */
+    private static IntBuffer readInts(FileChannel channel, long position, int count, boolean offHeap)
+            throws IOException {
+        if (offHeap) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count)
+                          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        int[] values = new int[count];
+        int done = 0;
+        while (done < count) {
+            int n = Math.min(count - done, WINDOW / 4);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * done, 4L * n);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, done, n);
+            done += n;
+        }
+        return IntBuffer.wrap(values);
+    }
+    
+    /**
+     * 读取文件区间中的char序列
+     * @param channel 文件通道
+     * @param position 起始位置
+     * @param count 元素个数
+     * @param offHeap 是否直接使用映射的文件区间
+     * @return char存储
+     * @throws IOException 映射失败
+     */
+    private static CharBuffer readChars(FileChannel channel, long position, int count, boolean offHeap)
+            throws IOException {
+        if (offHeap) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, 2L * count)
+                          .order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+        }
+        char[] values = new char[count];
+        int done = 0;
+        while (done < count) {
+            int n = Math.min(count - done, WINDOW / 2);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + 2L * done, 2L * n);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asCharBuffer().get(values, done, n);
+            done += n;
+        }
+        return CharBuffer.wrap(values);
+    }
+    
+    /**
+     * 带CRC32校验的缓冲写出器
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+        
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+        
+        void putInts(IntBuffer values, int count) throws IOException {
+            int done = 0;
+            while (done < count) {
+                if (buffer.remaining() < 4) {
+                    flush();
+                }
+                int n = Math.min(count - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(0, values, done, n);
+                buffer.position(buffer.position() + 4 * n);
+                done += n;
+            }
+        }
+        
+        void putChars(CharBuffer values, int count) throws IOException {
+            int done = 0;
+            while (done < count) {
+                if (buffer.remaining() < 2) {
+                    flush();
+                }
+                int n = Math.min(count - done, buffer.remaining() / 2);
+                buffer.asCharBuffer().put(0, values, done, n);
+                buffer.position(buffer.position() + 2 * n);
+                done += n;
+            }
+        }
+        
+        /**
+         * 写出缓冲区中的数据并更新校验值
+         */
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        /**
+         * 写出剩余数据和校验值
+         */
+        void finish() throws IOException {
+            flush();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 文本图快照发布器
+ * 写入端持有一个可修改的图，每次修改后生成只读快照并原子地发布；
+ * 读取端通过current()取得快照后即可在整个查询期间使用同一个一致的版本，
+ * 不需要加锁，也不会被正在进行的追加或重新加载阻塞
+ */
+public class TextGraphPublisher {
+    private final AtomicReference<TextGraph> published = new AtomicReference<>(); // 最近发布的快照
+    private TextGraph writable; // 写入端的可修改图，受this保护
+    
+    /**
+     * 获取最近发布的快照
+     * @return 只读快照，如果还没有发布过则返回null
+     */
+    public TextGraph current() {
+        return published.get();
+    }
+    
+    /**
+     * 用新的图替换写入端的图，并发布它的快照
+     * 新图应在调用之前构建完成，替换过程中读取端始终能取得旧快照或新快照之一
+     * @param graph 新的图
+     * @return 发布的快照
+     */
+    public synchronized TextGraph reset(TextGraph graph) {
+        writable = graph;
+        return publish();
+    }
+    
+    /**
+     * 向写入端的图追加文本，并发布新的快照
+     * @param text 输入文本
+     * @return 发布的快照
+     */
+    public synchronized TextGraph append(String text) {
+        writableGraph().appendText(text);
+        return publish();
+    }
+    
+    /**
+     * 按UTF-8流式读取文件并追加到写入端的图，然后发布新的快照
+     * 读取失败时已经读到的部分仍会被发布
+     * @param path 文件路径
+     * @return 发布的快照
+     * @throws IOException 读取失败
+     */
+    public synchronized TextGraph append(Path path) throws IOException {
+        try {
+            writableGraph().append(path);
+        } finally {
+            publish();
+        }
+        return current();
+    }
+    
+    /**
+     * 向写入端的图追加已经处理好的单词序列，并发布新的快照
+     * @param words 单词列表
+     * @return 发布的快照
+     */
+    public synchronized TextGraph appendTokens(List<String> words) {
+        writableGraph().appendTokens(words);
+        return publish();
+    }
+    
+    /**
+     * 发布写入端当前状态的快照
+     * @return 发布的快照
+     */
+    public synchronized TextGraph publish() {
+        TextGraph snapshot = writable == null ? null : writable.snapshot();
+        published.set(snapshot);
+        return snapshot;
+    }
+    
+    /**
+     * 获取写入端的图，传入的图本身是只读快照时先复制一份可修改的图
+     * @return 可修改的图
+     */
+    private TextGraph writableGraph() {
+        if (writable == null) {
+            throw new IllegalStateException("No graph has been published");
+        }
+        if (writable.isSnapshot()) {
+            writable = writable.mutableCopy();
+        }
+        return writable;
+    }
+}
@@ -0,0 +1,258 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单词切分器
+ * 手写的字符分类扫描器：逐字符查表判断是字母、分隔符还是应忽略的字符，
+ * 字母经过大小写处理后追加到内部缓冲区，遇到分隔符时通过回调交出单词。
+ * 整个过程不使用正则表达式，单词在回调中以字符区间的形式给出，不创建中间字符串。
+ * 切分器保存未结束的单词，文本可以分多次输入
+ */
+public class Tokenizer {
+    /**
+     * 字符分类规则
+     */
+    public interface Rule {
+        /**
+         * 对字符分类
+         * @param c 字符
+         * @return 字母在单词中对应的字符（大于0）；应忽略的字符返回0；分隔符返回-1
+         */
+        int classify(char c);
+    }
+    
+    /**
+     * 单词回调
+     */
+    public interface TokenHandler {
+        /**
+         * 处理一个单词，字符数组只在回调期间有效
+         * @param chars 字符数组
+         * @param offset 起始位置
+         * @param length 长度
+         */
+        void token(char[] chars, int offset, int length);
+    }
+    
+    /**
+     * 默认规则，与原先的正则处理一致：空白和ASCII标点分隔单词，
+     * 单词内只保留转换为小写后落在a-z的字符，数字和其他字符被忽略
+     */
+    public static final Rule ASCII_LOWER_CASE = c -> {
+        if (c < 128) {
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                return c | 0x20;
+            }
+            return isSeparator(c) ? -1 : 0;
+        }
+        char lower = Character.toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' ? lower : 0;
+    };
+    
+    /**
+     * 与默认规则相同，但保留字母的大小写
+     */
+    public static final Rule ASCII = c -> {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+            return c;
+        }
+        return c < 128 && isSeparator(c) ? -1 : 0;
+    };
+    
+    /**
+     * Unicode规则：所有Unicode字母都保留并转换为小写，数字被忽略，
+     * 其余字符（空白、标点、符号）分隔单词。代理对字符被忽略
+     */
+    public static final Rule UNICODE_LOWER_CASE = c -> {
+        if (Character.isLetter(c)) {
+            return Character.toLowerCase(c);
+        }
+        return Character.isDigit(c) || Character.isSurrogate(c) ? 0 : -1;
+    };
+    
+    /**
+     * 与Unicode规则相同，但保留字母的大小写
+     */
+    public static final Rule UNICODE = c -> {
+        if (Character.isLetter(c)) {
+            return c;
+        }
+        return Character.isDigit(c) || Character.isSurrogate(c) ? 0 : -1;
+    };
+    
+    private final Rule rule; // 字符分类规则
+    private final int[] asciiClass = new int[128]; // ASCII字符的分类结果，避免逐字符调用规则
+    private char[] buffer = new char[64]; // 正在扫描的单词
+    private int length; // 正在扫描的单词长度
+    
+    /**
+     * 构造函数，使用默认规则
+     */
+    public Tokenizer() {
+        this(ASCII_LOWER_CASE);
+    }
+    
+    /**
+     * 构造函数
+     * @param rule 字符分类规则
+     */
+    public Tokenizer(Rule rule) {
+        this.rule = rule;
+        for (char c = 0; c < 128; c++) {
+            asciiClass[c] = rule.classify(c);
+        }
+    }
+    
+    /**
+     * 获取字符分类规则
+     * @return 字符分类规则
+     */
+    public Rule getRule() {
+        return rule;
+    }
+    
+    /**
+     * 判断规则是否只保留ASCII字母，此时可以直接按字节扫描ASCII文本
+     * @return 是否只保留ASCII字母
+     */
+    public boolean isAsciiRule() {
+        return rule == ASCII_LOWER_CASE || rule == ASCII;
+    }
+    
+    /**
+     * 处理一个字符
+     * @param c 字符
+     * @param handler 单词回调
+     */
+    public void accept(char c, TokenHandler handler) {
+        int type = c < 128 ? asciiClass[c] : rule.classify(c);
+        if (type > 0) {
+            append((char) type);
+        } else if (type < 0 && length > 0) {
+            emit(handler);
+        }
+    }
+    
+    /**
+     * 扫描字符序列的一个区间
+     * @param text 字符序列
+     * @param from 起始位置（包含）
+     * @param to 结束位置（不包含）
+     * @param handler 单词回调
+     */
+    public void scan(CharSequence text, int from, int to, TokenHandler handler) {
+        for (int i = from; i < to; i++) {
+            accept(text.charAt(i), handler);
+        }
+    }
+    
+    /**
+     * 扫描字符数组的一个区间
+     * @param chars 字符数组
+     * @param from 起始位置（包含）
+     * @param to 结束位置（不包含）
+     * @param handler 单词回调
+     */
+    public void scan(char[] chars, int from, int to, TokenHandler handler) {
+        for (int i = from; i < to; i++) {
+            accept(chars[i], handler);
+        }
+    }
+    
+    /**
+     * 按字节扫描ASCII文本的一个区间，非ASCII字节被忽略
+     * @param bytes 字节缓冲区
+     * @param from 起始位置（包含）
+     * @param to 结束位置（不包含）
+     * @param handler 单词回调
+     */
+    public void scanAscii(ByteBuffer bytes, int from, int to, TokenHandler handler) {
+        for (int i = from; i < to; i++) {
+            int b = bytes.get(i);
+            if (b < 0) {
+                continue;
+            }
+            int type = asciiClass[b];
+            if (type > 0) {
+                append((char) type);
+            } else if (type < 0 && length > 0) {
+                emit(handler);
+            }
+        }
+    }
+    
+    /**
+     * 结束输入，尚未遇到分隔符的单词会被视为已经结束
+     * @param handler 单词回调
+     */
+    public void finish(TokenHandler handler) {
+        if (length > 0) {
+            emit(handler);
+        }
+    }
+    
+    /**
+     * 使用默认规则切分文本
+     * @param text 输入文本
+     * @return 单词列表
+     */
+    public static List<String> tokenize(CharSequence text) {
+        return tokenize(text, ASCII_LOWER_CASE);
+    }
+    
+    /**
+     * 切分文本
+     * @param text 输入文本
+     * @param rule 字符分类规则
+     * @return 单词列表
+     */
+    public static List<String> tokenize(CharSequence text, Rule rule) {
+        List<String> words = new ArrayList<>();
+        TokenHandler handler = (chars, offset, length) -> words.add(new String(chars, offset, length));
+        Tokenizer tokenizer = new Tokenizer(rule);
+        tokenizer.scan(text, 0, text.length(), handler);
+        tokenizer.finish(handler);
+        return words;
+    }
+    
+    /**
+     * 判断字符是否为空白
+     * @param c 字符
+     * @return 是否为空白
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+    
+    /**
+     * 判断ASCII字符是否分隔单词，即空白或标点
+     * @param c ASCII字符
+     * @return 是否为分隔符
+     */
+    private static boolean isSeparator(char c) {
+        return isWhitespace(c) || (c >= '!' && c <= '~' && !Character.isLetterOrDigit(c));
+    }
+    
+    /**
+     * 向正在扫描的单词追加一个字符
+     * @param c 字符
+     */
+    private void append(char c) {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, length * 2);
+        }
+        buffer[length++] = c;
+    }
+    
+    /**
+     * 交出正在扫描的单词
+     * @param handler 单词回调
+     */
+    private void emit(TokenHandler handler) {
+        int wordLength = length;
+        length = 0;
+        handler.token(buffer, 0, wordLength);
+    }
+}
@@ -0,0 +1,491 @@
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * 紧凑单词词表
+ * 所有单词的字符连续存放在一个字符数组中，通过偏移数组定位，
+ * 再用开放寻址的int哈希表按内容查找索引，避免每个单词一个String、
+ * 一个装箱Integer和一个哈希表节点的开销。
+ * 各个数组可以放在Java堆上，也可以通过toOffHeap()复制到堆外内存
+ */
+public class WordDictionary {
+    private CharBuffer arena; // 所有单词的字符
+    private int arenaSize; // 已使用的字符数
+    private IntBuffer offsets; // 第i个单词的起始位置为offsets[i]，结束位置为offsets[i+1]
+    private IntBuffer hashes; // 每个单词的哈希值，与String.hashCode一致
+    private IntBuffer slots; // 开放寻址表，存放单词索引+1，0表示空位
+    private int size; // 单词数量
+    private final boolean offHeap; // 数组是否位于堆外
+    private char[] arenaArray; // arena的底层数组，位于堆外时为null
+    private int[] offsetArray; // offsets的底层数组，位于堆外时为null
+    private int[] hashArray; // hashes的底层数组，位于堆外时为null
+    private int[] slotArray; // slots的底层数组，位于堆外时为null
+    
+    /**
+     * 构造函数，创建空词表
+     */
+    public WordDictionary() {
+        this(false);
+    }
+    
+    /**
+     * 构造函数，创建空词表
+     * @param offHeap 是否把数组放在堆外内存中
+     */
+    private WordDictionary(boolean offHeap) {
+        this.offHeap = offHeap;
+        arena = BufferStorage.chars(256, offHeap);
+        offsets = BufferStorage.ints(65, offHeap);
+        hashes = BufferStorage.ints(64, offHeap);
+        slots = BufferStorage.ints(128, offHeap);
+        refreshArrays();
+    }
+    
+    /**
+     * 构造函数，复制另一个词表，副本位于Java堆上
+     * @param other 被复制的词表
+     */
+    public WordDictionary(WordDictionary other) {
+        this(other, false);
+    }
+    
+    /**
+     * 构造函数，复制另一个词表
+     * @param other 被复制的词表
+     * @param offHeap 副本是否位于堆外内存中
+     */
+    private WordDictionary(WordDictionary other, boolean offHeap) {
+        this.offHeap = offHeap;
+        arena = BufferStorage.copyOf(other.arena, other.arenaSize, other.arenaSize, offHeap);
+        arenaSize = other.arenaSize;
+        offsets = BufferStorage.copyOf(other.offsets, other.size + 1, other.size + 1, offHeap);
+        hashes = BufferStorage.copyOf(other.hashes, other.size, other.size, offHeap);
+        slots = BufferStorage.copyOf(other.slots, other.slots.capacity(), other.slots.capacity(), offHeap);
+        size = other.size;
+        refreshArrays();
+    }
+    
+    /**
+     * 构造函数，使用已有的字符数组和偏移数组，重新计算哈希表
+     * @param arena 所有单词的字符
+     * @param offsets 偏移数组，长度为单词数量+1
+     */
+    WordDictionary(char[] arena, int[] offsets) {
+        this(CharBuffer.wrap(arena), IntBuffer.wrap(offsets));
+    }
+    
+    /**
+     * 构造函数，使用已有的字符存储和偏移存储，重新计算哈希表
+     * 哈希表与传入的存储位于同一种内存中
+     * @param arena 所有单词的字符
+     * @param offsets 偏移存储，容量为单词数量+1
+     */
+    WordDictionary(CharBuffer arena, IntBuffer offsets) {
+        this.offHeap = arena.isDirect();
+        this.arena = arena;
+        this.arenaSize = arena.capacity();
+        this.offsets = offsets;
+        this.size = offsets.capacity() - 1;
+        this.hashes = BufferStorage.ints(size, offHeap);
+        int capacity = 128;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        this.slots = BufferStorage.ints(capacity, offHeap);
+        refreshArrays();
+        int mask = capacity - 1;
+        for (int index = 0; index < size; index++) {
+            int hash = hash(arena, offsetAt(index), offsetAt(index + 1) - offsetAt(index));
+            hashes.put(index, hash);
+            int slot = mix(hash) & mask;
+            while (slotAt(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.put(slot, index + 1);
+        }
+    }
+    
+    /**
+     * 获取单词数量
+     * @return 单词数量
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 查找单词的索引
+     * @param word 单词
+     * @return 索引，如果不存在则返回-1
+     */
+    public int find(CharSequence word) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            hash = 31 * hash + word.charAt(i);
+        }
+        int mask = slots.capacity() - 1;
+        for (int slot = mix(hash) & mask; slotAt(slot) != 0; slot = (slot + 1) & mask) {
+            int index = slotAt(slot) - 1;
+            if (hashAt(index) == hash && equalsAt(index, word)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 查找字符区间对应单词的索引
+     * @param chars 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 索引，如果不存在则返回-1
+     */
+    public int find(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        int slot = findSlot(chars, offset, length, hash);
+        return slotAt(slot) - 1;
+    }
+    
+    /**
+     * 查找ASCII字节区间对应单词的索引
+     * @param bytes 字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 索引，如果不存在则返回-1
+     */
+    public int find(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (bytes[offset + i] & 0xff);
+        }
+        int mask = slots.capacity() - 1;
+        for (int slot = mix(hash) & mask; slotAt(slot) != 0; slot = (slot + 1) & mask) {
+            int index = slotAt(slot) - 1;
+            int start = offsetAt(index);
+            if (hashAt(index) == hash && offsetAt(index + 1) - start == length) {
+                int i = 0;
+                while (i < length && charAt(start + i) == (char) (bytes[offset + i] & 0xff)) {
+                    i++;
+                }
+                if (i == length) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 获取单词的索引，不存在时加入词表
+     * @param word 单词
+     * @return 单词索引
+     */
+    public int add(CharSequence word) {
+        int index = find(word);
+        if (index >= 0) {
+            return index;
+        }
+        char[] chars = new char[word.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = word.charAt(i);
+        }
+        return add(chars, 0, chars.length);
+    }
+    
+    /**
+     * 获取字符区间对应单词的索引，不存在时加入词表
+     * 已有单词的查找不会分配内存
+     * @param chars 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 单词索引
+     */
+    public int add(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        int slot = findSlot(chars, offset, length, hash);
+        if (slotAt(slot) != 0) {
+            return slotAt(slot) - 1;
+        }
+        
+        // 追加到字符数组
+        if (arenaSize + length > arena.capacity()) {
+            int capacity = Math.max(arena.capacity() * 2, arenaSize + length);
+            arena = BufferStorage.copyOf(arena, arenaSize, capacity, offHeap);
+            refreshArrays();
+        }
+        arena.put(arenaSize, chars, offset, length);
+        arenaSize += length;
+        
+        if (size == hashes.capacity()) {
+            int capacity = Math.max(size * 2, 64);
+            hashes = BufferStorage.copyOf(hashes, size, capacity, offHeap);
+            offsets = BufferStorage.copyOf(offsets, size + 1, capacity + 1, offHeap);
+            refreshArrays();
+        }
+        int index = size++;
+        hashes.put(index, hash);
+        offsets.put(index + 1, arenaSize);
+        slots.put(slot, index + 1);
+        
+        if (size * 2 > slots.capacity()) {
+            rehash();
+        }
+        return index;
+    }
+    
+    /**
+     * 把另一个词表中的单词加入当前词表
+     * @param other 另一个词表
+     * @param otherIndex 单词在另一个词表中的索引
+     * @return 单词在当前词表中的索引
+     */
+    public int add(WordDictionary other, int otherIndex) {
+        int start = other.offsetAt(otherIndex);
+        int length = other.offsetAt(otherIndex + 1) - start;
+        if (other.arena.hasArray()) {
+            return add(other.arena.array(), other.arena.arrayOffset() + start, length);
+        }
+        char[] chars = new char[length];
+        other.arena.get(start, chars);
+        return add(chars, 0, length);
+    }
+    
+    /**
+     * 获取索引对应的单词
+     * @param index 单词索引
+     * @return 单词
+     */
+    public String get(int index) {
+        int start = offsetAt(index);
+        int length = offsetAt(index + 1) - start;
+        if (arena.hasArray()) {
+            return new String(arena.array(), arena.arrayOffset() + start, length);
+        }
+        char[] chars = new char[length];
+        arena.get(start, chars);
+        return new String(chars);
+    }
+    
+    /**
+     * 获取所有单词，按索引顺序排列
+     * @return 单词列表
+     */
+    public List<String> toList() {
+        List<String> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            words.add(get(i));
+        }
+        return words;
+    }
+    
+    /**
+     * 将词表复制到堆外内存，查找接口不变
+     * @return 堆外词表
+     */
+    public WordDictionary toOffHeap() {
+        return new WordDictionary(this, true);
+    }
+    
+    /**
+     * 判断词表是否位于堆外内存中
+     * @return 是否位于堆外
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+    
+    /**
+     * 获取已使用的字符数
+     * @return 字符数
+     */
+    int arenaSize() {
+        return arenaSize;
+    }
+    
+    /**
+     * 获取字符存储，只有前arenaSize()个字符有效
+     * @return 字符存储
+     */
+    CharBuffer arena() {
+        return arena;
+    }
+    
+    /**
+     * 获取偏移存储，只有前size()+1个元素有效
+     * @return 偏移存储
+     */
+    IntBuffer offsets() {
+        return offsets;
+    }
+    
+    /**
+     * 重新取得各个存储的底层数组，存储被替换后调用
+     * 堆内存储直接访问数组，只有堆外存储才通过缓冲区访问
+     */
+    private void refreshArrays() {
+        arenaArray = arena.hasArray() && arena.arrayOffset() == 0 ? arena.array() : null;
+        offsetArray = offsets.hasArray() && offsets.arrayOffset() == 0 ? offsets.array() : null;
+        hashArray = hashes.hasArray() && hashes.arrayOffset() == 0 ? hashes.array() : null;
+        slotArray = slots.hasArray() && slots.arrayOffset() == 0 ? slots.array() : null;
+    }
+    
+    /**
+     * 获取字符存储中的字符
+     * @param i 位置
+     * @return 字符
+     */
+    private char charAt(int i) {
+        return arenaArray != null ? arenaArray[i] : arena.get(i);
+    }
+    
+    /**
+     * 获取偏移存储中的值
+     * @param i 位置
+     * @return 偏移
+     */
+    private int offsetAt(int i) {
+        return offsetArray != null ? offsetArray[i] : offsets.get(i);
+    }
+    
+    /**
+     * 获取单词的哈希值
+     * @param i 单词索引
+     * @return 哈希值
+     */
+    private int hashAt(int i) {
+        return hashArray != null ? hashArray[i] : hashes.get(i);
+    }
+    
+    /**
+     * 获取开放寻址表中的槽位值
+     * @param i 槽位
+     * @return 单词索引+1，0表示空位
+     */
+    private int slotAt(int i) {
+        return slotArray != null ? slotArray[i] : slots.get(i);
+    }
+    
+    /**
+     * 判断词表中的单词是否与给定字符序列相同
+     * @param index 单词索引
+     * @param word 字符序列
+     * @return 是否相同
+     */
+    private boolean equalsAt(int index, CharSequence word) {
+        int start = offsetAt(index);
+        int length = offsetAt(index + 1) - start;
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 判断词表中的单词是否与给定字符区间相同
+     * @param index 单词索引
+     * @param chars 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否相同
+     */
+    private boolean equalsAt(int index, char[] chars, int offset, int length) {
+        int start = offsetAt(index);
+        if (offsetAt(index + 1) - start != length) {
+            return false;
+        }
+        if (arena.hasArray()) {
+            int from = arena.arrayOffset() + start;
+            return Arrays.equals(arena.array(), from, from + length, chars, offset, offset + length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(start + i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 查找字符区间所在的槽位
+     * @param chars 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @param hash 字符区间的哈希值
+     * @return 命中的槽位，或者可以插入的空槽位
+     */
+    private int findSlot(char[] chars, int offset, int length, int hash) {
+        int mask = slots.capacity() - 1;
+        int slot = mix(hash) & mask;
+        while (slotAt(slot) != 0) {
+            int index = slotAt(slot) - 1;
+            if (hashAt(index) == hash && equalsAt(index, chars, offset, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    /**
+     * 将开放寻址表扩容为原来的两倍
+     */
+    private void rehash() {
+        IntBuffer newSlots = BufferStorage.ints(slots.capacity() * 2, offHeap);
+        int mask = newSlots.capacity() - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = mix(hashAt(index)) & mask;
+            while (newSlots.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots.put(slot, index + 1);
+        }
+        slots = newSlots;
+        refreshArrays();
+    }
+    
+    /**
+     * 计算字符区间的哈希值，与String.hashCode一致
+     * @param chars 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 哈希值
+     */
+    private static int hash(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[offset + i];
+        }
+        return hash;
+    }
+    
+    /**
+     * 计算字符存储中一段区间的哈希值，与String.hashCode一致
+     * @param chars 字符存储
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 哈希值
+     */
+    private static int hash(CharBuffer chars, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars.get(offset + i);
+        }
+        return hash;
+    }
+    
+    /**
+     * 打散哈希值的高低位
+     * @param hash 哈希值
+     * @return 打散后的哈希值
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}